@@ -1,12 +1,14 @@
 package com.moviezon.moviebackend.auth.config;
 
 import com.moviezon.moviebackend.auth.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,6 +26,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
 
+    // trust the signed subject and role claims instead of loading the user on every request
+    @Value("${jwt.claims-principal.enabled:false}")
+    private boolean claimsPrincipal;
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
@@ -39,7 +45,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         // condition to check if token is NULL and
         // does not start with keyword "Bearer "
         // pass to next filter, and return
-        System.out.println("Auth header = " + authHeader);
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
@@ -47,12 +52,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         // extract JWT
         jwt = authHeader.substring(7);
-        // extract username from JWT
-        userEmail = jwtService.extractUsername(jwt);
-        System.out.println("userEmail = " + userEmail);
+        // verify JWT once, then read username from its claims
+        final Claims claims = jwtService.verifyToken(jwt);
+        userEmail = claims.getSubject();
         /*
          * if username is not null and user not authenticated
-         * get UserDetails from username
+         * get UserDetails from the claims, or from username when claims principal is off
          * check if token is valid
          * set authToken using UserDetails object
          * update security context holder to make user authenticated
@@ -60,8 +65,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
          */
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            UserDetails userDetails = claimsPrincipal
+                    ? jwtService.extractUserDetails(claims)
+                    : this.userDetailsService.loadUserByUsername(userEmail);
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -73,7 +80,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 );
 
                 SecurityContextHolder.getContext().setAuthentication(authToken);
-                System.out.println("Filter completed!");
             }
         }
 
@@ -3,9 +3,12 @@ package com.moviezon.moviebackend.auth.config;
 import com.moviezon.moviebackend.auth.service.AuthService;
 import com.moviezon.moviebackend.auth.service.JwtService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -23,6 +26,10 @@ public class SecurityConfiguration {
     private final JwtAuthFilter jwtAuthFilter;
     private final AuthenticationProvider authenticationProvider;
 
+    // let a Prometheus scraper without a JWT read /metrics, keep it off the public network then
+    @Value("${metrics.endpoint.public:false}")
+    private boolean metricsPublic;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception{
         http
@@ -30,6 +37,10 @@ public class SecurityConfiguration {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/auth/**", "/forgotPassword/**", "/file/**")
                         .permitAll()
+                        .requestMatchers("/metrics")
+                        .access(metricsPublic
+                                ? (authentication, context) -> new AuthorizationDecision(true)
+                                : AuthenticatedAuthorizationManager.authenticated())
                         .anyRequest()
                         .authenticated())
                 .sessionManagement(session -> session
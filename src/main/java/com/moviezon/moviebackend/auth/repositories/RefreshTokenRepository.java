@@ -2,10 +2,20 @@ package com.moviezon.moviebackend.auth.repositories;
 
 import com.moviezon.moviebackend.auth.entities.RefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Integer> {
 
     Optional<RefreshToken> findByRefreshToken(String refreshToken);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.expirationTime < :now")
+    int deleteExpired(@Param("now") Instant now);
 }
@@ -23,19 +23,22 @@ public class AuthService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final RefreshTokenService refreshTokenService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
     /*
      * REGISTRATION of NEW USER
+     * hash the password on the hashing pool
      * build user object using request object
      * save user in DB
      * generate JWT/refreshToken and send response
      */
     public AuthResponse register(RegisterRequest request) {
+        String encodedPassword = passwordHashingExecutor.run(() -> passwordEncoder.encode(request.getPassword()));
         var user = User.builder()
                 .name(request.getName())
                 .email(request.getEmail())
                 .username(request.getUsername())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(encodedPassword)
                 .role(UserRole.USER)
                 .build();
         User savedUser = userRepository.save(user);
@@ -51,17 +54,17 @@ public class AuthService {
 
     /*
      * LOGIN USER
-     * using AuthenticationManager to authenticate user
+     * using AuthenticationManager to authenticate user on the hashing pool
      * fetch user details
      * generate JWT/refreshToken and send response
      */
     public AuthResponse authenticate(LoginRequest request) {
-        authenticationManager.authenticate(
+        passwordHashingExecutor.run(() -> authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getEmail(),
                         request.getPassword()
                 )
-        );
+        ));
 
         var user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow();
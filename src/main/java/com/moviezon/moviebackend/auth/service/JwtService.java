@@ -1,16 +1,29 @@
 package com.moviezon.moviebackend.auth.service;
 
+import com.moviezon.moviebackend.metrics.Histogram;
+import com.moviezon.moviebackend.metrics.MetricsRegistry;
+import com.moviezon.moviebackend.utils.BoundedCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -18,29 +31,104 @@ import java.util.function.Function;
 public class JwtService {
     private static final String SECRET_KEY = "Your Secret Key";
 
+    // key is decoded once and the parser built once, both are thread safe
+    private final SingletonSupplier<SecretKey> signInKey = SingletonSupplier.of(this::decodeSignInKey);
+
+    private final SingletonSupplier<JwtParser> jwtParser = SingletonSupplier.of(() -> Jwts
+            .parser()
+            .verifyWith(signInKey.obtain())
+            .build());
+
+    // recently verified tokens, each entry expires together with its token
+    private final BoundedCache<String, Claims> verifiedTokens;
+
+    // verification time, split by answered from the cache, verified, or rejected
+    private final Histogram cachedVerifications;
+    private final Histogram signatureVerifications;
+    private final Histogram rejectedVerifications;
+
+    public JwtService(@Value("${jwt.verified-cache.max-size:10000}") int verifiedCacheSize,
+                      MetricsRegistry metricsRegistry) {
+        this.verifiedTokens = new BoundedCache<>(verifiedCacheSize, Duration.ofMinutes(10));
+        this.cachedVerifications = verificationHistogram(metricsRegistry, "cached");
+        this.signatureVerifications = verificationHistogram(metricsRegistry, "verified");
+        this.rejectedVerifications = verificationHistogram(metricsRegistry, "rejected");
+    }
+
+    private static Histogram verificationHistogram(MetricsRegistry metricsRegistry, String result) {
+        return metricsRegistry.histogram("jwt_verification_seconds", "JWT verification time",
+                Histogram.SECONDS, "result", result);
+    }
+
     // extract username from JWT
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = verifyToken(token);
         return claimsResolver.apply(claims);
     }
 
+    /*
+     * verify the signature and parse the claims once per token,
+     * a repeated token is answered from the cache until it expires.
+     * Invalid or expired tokens throw as before and are never cached.
+     */
+    public Claims verifyToken(String token) {
+        long start = System.nanoTime();
+        Claims claims = verifiedTokens.get(token);
+        if (claims != null) {
+            cachedVerifications.observeNanos(System.nanoTime() - start);
+            return claims;
+        }
+        try {
+            claims = extractAllClaims(token);
+        } catch (RuntimeException e) {
+            rejectedVerifications.observeNanos(System.nanoTime() - start);
+            throw e;
+        }
+        verifiedTokens.put(token, claims, claims.getExpiration().getTime());
+        signatureVerifications.observeNanos(System.nanoTime() - start);
+        return claims;
+    }
+
+    // principal rebuilt from the signed subject and role claims, no user lookup needed
+    public UserDetails extractUserDetails(Claims claims) {
+        return User.withUsername(claims.getSubject())
+                .password("")
+                .authorities(extractAuthorities(claims))
+                .build();
+    }
+
+    // role is written from getAuthorities(), so it comes back as [{"authority": "USER"}]
+    private List<GrantedAuthority> extractAuthorities(Claims claims) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (claims.get("role") instanceof Collection<?> roles) {
+            for (Object role : roles) {
+                if (role instanceof Map<?, ?> authority && authority.get("authority") != null) {
+                    authorities.add(new SimpleGrantedAuthority(authority.get("authority").toString()));
+                } else if (role instanceof String name) {
+                    authorities.add(new SimpleGrantedAuthority(name));
+                }
+            }
+        }
+        return authorities;
+    }
+
     // extract information from JWT
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return jwtParser.obtain()
+                .parseSignedClaims(token)
+                .getPayload();
     }
 
-    // decode and get the key
-    private Key getSignInKey() {
-        // decode SECRET_KEY
+    private SecretKey getSignInKey() {
+        return signInKey.obtain();
+    }
+
+    // decode SECRET_KEY
+    private SecretKey decodeSignInKey() {
         byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
         return Keys.hmacShaKeyFor(keyBytes);
     }
@@ -69,17 +157,17 @@ public class JwtService {
 
     // if token is valid by checking if token is expired for current user
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(verifyToken(token), userDetails);
     }
 
-    // if token is expired
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // same check on claims that were already verified, no second parse
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername()) && !isTokenExpired(claims));
     }
 
-    // get expiration date from token
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // if token is expired
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 }
@@ -8,6 +8,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -17,15 +18,26 @@ public class RefreshTokenService {
 
     private final UserRepository userRepository;
 
-    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository) {
+    private final RefreshTokenStore refreshTokenStore;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+                               RefreshTokenStore refreshTokenStore) {
         this.refreshTokenRepository = refreshTokenRepository;
         this.userRepository = userRepository;
+        this.refreshTokenStore = refreshTokenStore;
     }
 
     public RefreshToken createRefreshToken(String username){
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username ));
         RefreshToken refreshToken = user.getRefreshToken();
+        // an expired token is replaced instead of being handed out again,
+        // deleted by id since the user loaded above still references it
+        if(refreshToken != null && refreshToken.getExpirationTime().compareTo(Instant.now()) < 0){
+            refreshTokenStore.remove(refreshToken.getRefreshToken());
+            refreshTokenRepository.deleteAllByIdInBatch(List.of(refreshToken.getTokenId()));
+            refreshToken = null;
+        }
         if(refreshToken == null){
             long refreshTokenValidity = 30 * 1000;
             refreshToken = RefreshToken.builder()
@@ -33,19 +45,28 @@ public class RefreshTokenService {
                     .expirationTime(Instant.now().plusMillis(refreshTokenValidity))
                     .user(user)
                     .build();
-            refreshTokenRepository.save(refreshToken);
+            refreshToken = refreshTokenRepository.save(refreshToken);
         }
+        refreshTokenStore.put(refreshToken);
         return refreshToken;
     }
-    public RefreshToken verifyRefreshToken(String refreshToken) {
-        RefreshToken refToken = refreshTokenRepository.findByRefreshToken(refreshToken)
-                .orElseThrow(() -> new RuntimeException("Refresh token not found!"));
+    // returns the token's owner as stored now, so the new JWT carries the current role
+    public User verifyRefreshToken(String refreshToken) {
+        // the token is checked against the in-memory index, the repository is only asked on a miss
+        RefreshTokenStore.Entry refToken = refreshTokenStore.get(refreshToken);
+        if (refToken == null) {
+            refToken = refreshTokenStore.put(refreshTokenRepository.findByRefreshToken(refreshToken)
+                    .orElseThrow(() -> new RuntimeException("Refresh token not found!")));
+        }
 
-        if (refToken.getExpirationTime().compareTo(Instant.now()) < 0) {
-            refreshTokenRepository.delete(refToken);
+        if (refToken.expirationTime().compareTo(Instant.now()) < 0) {
+            refreshTokenStore.remove(refreshToken);
+            refreshTokenRepository.deleteAllByIdInBatch(List.of(refToken.tokenId()));
             throw new RuntimeException("Refresh Token expired");
         }
 
-        return refToken;
+        Integer userId = refToken.userId();
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + userId));
     }
 }
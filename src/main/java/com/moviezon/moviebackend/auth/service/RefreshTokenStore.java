@@ -0,0 +1,125 @@
+package com.moviezon.moviebackend.auth.service;
+
+import com.moviezon.moviebackend.auth.entities.RefreshToken;
+import com.moviezon.moviebackend.auth.repositories.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * In-memory index of live refresh tokens in front of the repository.
+ * Only the token's id, expiry and owner id are kept, never the User entity,
+ * so a role or account change is seen by the next refresh.
+ * Each token also sits in the bucket of a hashed timer wheel for its expiry tick,
+ * the sweeper walks the buckets that came due and deletes their rows in one batch.
+ */
+@Slf4j
+@Component
+public class RefreshTokenStore {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final long tickMillis;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+    private final List<Set<String>> wheel = new ArrayList<>(WHEEL_SIZE);
+
+    // only touched by the scheduler thread
+    private long lastSweptTick = -1;
+
+    public RefreshTokenStore(RefreshTokenRepository refreshTokenRepository,
+                             @Value("${auth.refresh-token.tick-ms:1000}") long tickMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.tickMillis = tickMillis;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    public Entry get(String refreshToken) {
+        return index.get(refreshToken);
+    }
+
+    public Entry put(RefreshToken refreshToken) {
+        Entry entry = new Entry(refreshToken.getTokenId(), refreshToken.getExpirationTime(),
+                refreshToken.getUser().getUserId());
+        index.put(refreshToken.getRefreshToken(), entry);
+        wheel.get(bucketOf(tickOf(entry.expirationTime()))).add(refreshToken.getRefreshToken());
+        return entry;
+    }
+
+    // the wheel slot is cleaned up lazily by the sweeper
+    public void remove(String refreshToken) {
+        index.remove(refreshToken);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.refresh-token.tick-ms:1000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMillis;
+        if (lastSweptTick < 0) {
+            lastSweptTick = currentTick - 1;
+        }
+
+        // a lagging sweeper never needs more than one full turn, older ticks share these buckets
+        List<Integer> expiredIds = new ArrayList<>();
+        long fromTick = Math.max(lastSweptTick + 1, currentTick - WHEEL_SIZE + 1);
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Iterator<String> bucket = wheel.get(bucketOf(tick)).iterator();
+            while (bucket.hasNext()) {
+                String value = bucket.next();
+                Entry token = index.get(value);
+                if (token == null) {
+                    bucket.remove();
+                } else if (token.expirationTime().toEpochMilli() <= now) {
+                    bucket.remove();
+                    index.remove(value);
+                    expiredIds.add(token.tokenId());
+                }
+                // anything else expires on a later turn of the wheel
+            }
+        }
+        lastSweptTick = currentTick;
+
+        if (!expiredIds.isEmpty()) {
+            try {
+                refreshTokenRepository.deleteAllByIdInBatch(expiredIds);
+            } catch (RuntimeException e) {
+                log.warn("Could not delete {} expired refresh tokens", expiredIds.size(), e);
+            }
+        }
+    }
+
+    // rows this instance never indexed, e.g. issued before a restart
+    @Scheduled(fixedDelayString = "${auth.refresh-token.db-sweep-ms:60000}")
+    public void sweepDatabase() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.debug("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    // rounded up, so by the time a tick is swept everything in its bucket is due
+    private long tickOf(Instant expirationTime) {
+        return (expirationTime.toEpochMilli() + tickMillis - 1) / tickMillis;
+    }
+
+    private int bucketOf(long tick) {
+        return (int) (tick % WHEEL_SIZE);
+    }
+
+    public record Entry(Integer tokenId, Instant expirationTime, Integer userId) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.moviezon.moviebackend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Active with spring.threads.virtual.enabled=true.
+ * Spring Boot then runs Tomcat requests and the applicationTaskExecutor
+ * (used by the streaming endpoints) on virtual threads.
+ * Request concurrency is no longer capped by Tomcat's worker pool,
+ * so the connection pool becomes the limit and is sized here,
+ * unless spring.datasource.hikari.maximum-pool-size sets it explicitly.
+ * Poster derivatives stay on their own small platform pool, they are CPU bound.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    static BeanPostProcessor boundedConnectionPool(
+            @Value("${app.datasource.max-pool-size:20}") int maxPoolSize,
+            @Value("${app.datasource.connection-timeout-ms:5000}") long connectionTimeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    // Hikari leaves the size at -1 until it is set, and would default it to 10
+                    if (dataSource.getMaximumPoolSize() < 1) {
+                        dataSource.setMaximumPoolSize(maxPoolSize);
+                    }
+                    // thousands of virtual threads may queue for a connection, fail them fast instead of after 30s
+                    dataSource.setConnectionTimeout(Math.min(dataSource.getConnectionTimeout(), connectionTimeoutMs));
+                    log.info("Virtual threads enabled, connection pool of {} with {} ms wait",
+                            dataSource.getMaximumPoolSize(), dataSource.getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,6 +1,5 @@
 package com.moviezon.moviebackend.controller;
 
-import com.moviezon.moviebackend.auth.entities.RefreshToken;
 import com.moviezon.moviebackend.auth.entities.User;
 import com.moviezon.moviebackend.auth.service.AuthService;
 import com.moviezon.moviebackend.auth.service.JwtService;
@@ -50,13 +49,12 @@ public class AuthController {
     @PostMapping("/refresh")
     public ResponseEntity<AuthResponse> refreshToken(@RequestBody RefreshTokenRequest request) {
 
-        RefreshToken refreshToken = refreshTokenService.verifyRefreshToken(request.getRefreshToken());
-        User user = refreshToken.getUser();
+        User user = refreshTokenService.verifyRefreshToken(request.getRefreshToken());
 
         String token = this.jwtService.generateToken(user);
 
         return ResponseEntity.ok(AuthResponse.builder()
-                .refreshToken(refreshToken.getRefreshToken())
+                .refreshToken(request.getRefreshToken())
                 .token(token)
                 .build());
     }
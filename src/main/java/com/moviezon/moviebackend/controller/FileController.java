@@ -1,43 +1,151 @@
 package com.moviezon.moviebackend.controller;
 
+import com.moviezon.moviebackend.metrics.Counter;
+import com.moviezon.moviebackend.metrics.MetricsRegistry;
 import com.moviezon.moviebackend.service.FileService;
+import com.moviezon.moviebackend.service.PosterFile;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.print.attribute.standard.Media;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
 
 @RestController
 @RequestMapping("/file/")
 public class FileController {
 
+    // request attributes Tomcat reads to hand the body over to sendfile()
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private FileService fileService;
 
-    public FileController(FileService fileService) {
+    private final Counter sendfileBytes;
+
+    private final Counter streamedBytes;
+
+    public FileController(FileService fileService, MetricsRegistry metricsRegistry) {
         this.fileService = fileService;
+        this.sendfileBytes = metricsRegistry.counter("poster_served_bytes_total",
+                "Poster bytes sent to clients", "mode", "sendfile");
+        this.streamedBytes = metricsRegistry.counter("poster_served_bytes_total",
+                "Poster bytes sent to clients", "mode", "stream");
     }
 
     @Value("${project.poster}")
     private String path;
 
+    @Value("${project.poster.max-age-seconds:86400}")
+    private long posterMaxAge;
+
     @PostMapping("/upload/")
     public ResponseEntity<String> uploadFileHandler(@RequestPart MultipartFile file) throws IOException {
         String uploadedFileName = fileService.uploadFile(path, file);
+        // no movie row is written here, so there is nothing to hold the pin for
+        fileService.unpin(uploadedFileName);
         return ResponseEntity.ok("File Uploaded: " + uploadedFileName);
     }
 
     @GetMapping("/{fileName}")
-    public void serveFileHandler(@PathVariable String fileName, HttpServletResponse response) throws IOException {
-        InputStream resourceFile = fileService.getResourceFile(path, fileName);
-        response.setContentType(MediaType.IMAGE_PNG_VALUE);
-        StreamUtils.copy(resourceFile, response.getOutputStream());
+    public void serveFileHandler(@PathVariable String fileName,
+                                 @RequestParam(name = "w", required = false) Integer width,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        PosterFile poster = fileService.getResourceFile(path, fileName, width);
+        Path file = poster.path();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        // the original standing in for a derivative must not be cached under the ?w= url
+        CacheControl cacheControl = poster.provisional()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(Duration.ofSeconds(posterMaxAge)).cachePublic();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // sets ETag / Last-Modified and answers 304 when the client copy is still current
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(fileService.detectContentType(file));
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // multiple ranges are answered with the whole file, which the spec allows
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                if (length == 0 || range.getRangeStart(length) >= length) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        // let the connector sendfile() the bytes straight from the page cache when it can
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            sendfileBytes.add(count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            streamedBytes.add(count - remaining);
+        }
     }
 }
@@ -1,19 +1,43 @@
 package com.moviezon.moviebackend.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.moviezon.moviebackend.dto.AutocompleteSuggestion;
+import com.moviezon.moviebackend.dto.ImportJobStatus;
+import com.moviezon.moviebackend.dto.MovieBatchResponse;
+import com.moviezon.moviebackend.dto.MovieCursorPageResponse;
 import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.dto.MovieFilterResponse;
 import com.moviezon.moviebackend.dto.MoviePageResponse;
 import com.moviezon.moviebackend.entities.Movie;
 import com.moviezon.moviebackend.exceptions.FileMissingException;
+import com.moviezon.moviebackend.exceptions.InvalidCursorException;
+import com.moviezon.moviebackend.exceptions.InvalidMovieException;
+import com.moviezon.moviebackend.metrics.QueryBudget;
+import com.moviezon.moviebackend.service.MovieAutocompleteService;
+import com.moviezon.moviebackend.service.MovieExportService;
+import com.moviezon.moviebackend.service.MovieFacetService;
+import com.moviezon.moviebackend.service.MovieImportService;
+import com.moviezon.moviebackend.service.MovieSearchService;
 import com.moviezon.moviebackend.service.MovieService;
 import com.moviezon.moviebackend.utils.AppConstants;
+import com.moviezon.moviebackend.utils.BoundedCache;
+import com.moviezon.moviebackend.utils.MovieETags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -22,11 +46,44 @@ public class MovieController {
 
     private final MovieService movieService;
 
-    public MovieController(MovieService movieService) {
+    private final MovieSearchService movieSearchService;
+
+    private final MovieAutocompleteService movieAutocompleteService;
+
+    private final MovieFacetService movieFacetService;
+
+    private final MovieImportService movieImportService;
+
+    private final MovieExportService movieExportService;
+
+    private final ObjectMapper objectMapper;
+
+    // built once from the shared mapper, but strict about unknown fields like a default ObjectMapper
+    private final ObjectReader movieDtoReader;
+
+    // clients only, the export reads larger keyset chunks through the same service call
+    private final int maxCursorPageSize;
+
+    public MovieController(MovieService movieService, MovieSearchService movieSearchService,
+                           MovieAutocompleteService movieAutocompleteService, MovieFacetService movieFacetService,
+                           MovieImportService movieImportService, MovieExportService movieExportService,
+                           ObjectMapper objectMapper,
+                           @Value("${movie.cursor.max-page-size:100}") int maxCursorPageSize) {
         this.movieService = movieService;
+        this.movieSearchService = movieSearchService;
+        this.movieAutocompleteService = movieAutocompleteService;
+        this.movieFacetService = movieFacetService;
+        this.movieImportService = movieImportService;
+        this.movieExportService = movieExportService;
+        this.objectMapper = objectMapper;
+        this.movieDtoReader = objectMapper.readerFor(MovieDto.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.maxCursorPageSize = maxCursorPageSize;
     }
 
     @PostMapping("/add-movie")
+    // movie insert plus one insert per cast member
+    @QueryBudget(statements = 25)
     public ResponseEntity<MovieDto> addMovieHandler(@RequestPart MultipartFile file,
                                                     @RequestPart String movieDto) throws IOException {
         if(file.isEmpty()) {
@@ -36,56 +93,243 @@ public class MovieController {
         return new ResponseEntity<>(movieService.addMovie(obj, file), HttpStatus.CREATED);
     }
 
+    // bulk load from NDJSON or CSV plus an optional posters zip, runs in the background
+    @PostMapping("/import")
+    // rows are written by the import executor, not this request
+    @QueryBudget(statements = 0)
+    public ResponseEntity<ImportJobStatus> importMoviesHandler(@RequestPart MultipartFile file,
+                                                               @RequestPart(required = false) MultipartFile posters) throws IOException {
+        if(file.isEmpty()) {
+            throw new FileMissingException("Import file is required but was not provided.");
+        }
+        ImportJobStatus status = movieImportService.startImport(file, posters);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/movie/import/" + status.jobId()))
+                .body(status);
+    }
+
+    @GetMapping("/import/{jobId}")
+    @QueryBudget(statements = 0)
+    public ResponseEntity<ImportJobStatus> getImportStatusHandler(@PathVariable String jobId) {
+        return ResponseEntity.ok(movieImportService.getImportStatus(jobId));
+    }
+
+    @GetMapping("/cache-stats")
+    @QueryBudget(statements = 0)
+    public ResponseEntity<BoundedCache.Stats> getMovieCacheStatsHandler() {
+        return ResponseEntity.ok(movieService.getMovieCacheStats());
+    }
+
+    // ranked full-text search over title, director, studio and cast, served from memory
+    @GetMapping("/search")
+    @QueryBudget(statements = 0)
+    public ResponseEntity<List<MovieDto>> searchMoviesHandler(
+            @RequestParam String q,
+            @RequestParam(defaultValue = AppConstants.SEARCH_LIMIT, required = false) Integer limit
+    ){
+        return ResponseEntity.ok(movieSearchService.search(q, limit));
+    }
+
+    // type-ahead suggestions for titles and cast names, most frequent first
+    @GetMapping("/autocomplete")
+    @QueryBudget(statements = 0)
+    public ResponseEntity<List<AutocompleteSuggestion>> autocompleteHandler(
+            @RequestParam String q,
+            @RequestParam(defaultValue = AppConstants.AUTOCOMPLETE_LIMIT, required = false) Integer k
+    ){
+        return ResponseEntity.ok(movieAutocompleteService.suggest(q, k));
+    }
+
+    // many tiles in one call, e.g. ?ids=3,7,42
+    @GetMapping("/batch")
+    @QueryBudget(statements = 1)
+    public ResponseEntity<MovieBatchResponse> getMoviesBatchHandler(@RequestParam List<Integer> ids) {
+        return ResponseEntity.ok(movieService.getMoviesByIds(ids));
+    }
+
     @GetMapping("/{movieId}")
+    @QueryBudget(statements = 2)
+    // a matching If-None-Match is answered with 304 and no body
     public ResponseEntity<MovieDto> getMovieHandler(@PathVariable Integer movieId) {
-        return ResponseEntity.ok(movieService.getMovieById(movieId));
+        MovieDto movieDto = movieService.getMovieById(movieId);
+        return ResponseEntity.ok().eTag(MovieETags.of(movieDto)).body(movieDto);
     }
 
     @GetMapping("/all")
+    @QueryBudget(statements = 1)
     public ResponseEntity<List<MovieDto>> getAllMoviesHandler(){
         return ResponseEntity.ok(movieService.getAllMovies());
     }
 
+    // streaming variant of /all, one MovieDto per line, written as rows are read
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @QueryBudget(statements = 0)
+    public ResponseEntity<StreamingResponseBody> streamAllMoviesHandler() {
+        StreamingResponseBody body = outputStream -> movieService.streamAllMovies(movieDto -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(movieDto));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // whole catalogue for backups, ?format=ndjson|csv, gzip=true compresses, posters=true zips the poster files in
+    @GetMapping("/export")
+    @QueryBudget(statements = 0)
+    public ResponseEntity<StreamingResponseBody> exportMoviesHandler(
+            @RequestParam(defaultValue = "ndjson", required = false) String format,
+            @RequestParam(defaultValue = "false", required = false) boolean gzip,
+            @RequestParam(defaultValue = "false", required = false) boolean posters
+    ){
+        MovieExportService.Format exportFormat = MovieExportService.Format.of(format);
+
+        String fileName = "movies" + exportFormat.getExtension();
+        MediaType contentType = MediaType.parseMediaType(exportFormat.getContentType());
+        if(posters) {
+            fileName = "movies.zip";
+            contentType = MediaType.parseMediaType("application/zip");
+        } else if(gzip) {
+            fileName += ".gz";
+            contentType = MediaType.parseMediaType("application/gzip");
+        }
+
+        StreamingResponseBody body = outputStream -> movieExportService.export(exportFormat, gzip, posters, outputStream);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
     @PutMapping("/update/{movieId}")
+    // cast rows are rewritten one statement each
+    @QueryBudget(statements = 25)
     public ResponseEntity<MovieDto> updateMovieHandler(@PathVariable Integer movieId,
-                                                       @RequestPart MultipartFile file, @RequestPart String movieDto) throws IOException {
+                                                       @RequestPart MultipartFile file, @RequestPart String movieDto,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws IOException {
         if(file.isEmpty()) file = null;
         MovieDto obj = convertToMovieDto(movieDto);
-        return new ResponseEntity<>(movieService.updateMovieById(movieId, obj, file), HttpStatus.CREATED);
+        MovieDto updated = movieService.updateMovieById(movieId, obj, file, MovieETags.expectedVersion(ifMatch, movieId));
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(MovieETags.of(updated)).body(updated);
+    }
+
+    // partial update as JSON, only the fields present are changed
+    @PatchMapping(value = "/{movieId}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @QueryBudget(statements = 25)
+    public ResponseEntity<MovieDto> patchMovieHandler(@PathVariable Integer movieId, @RequestBody MovieDto movieDto,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws IOException {
+        MovieDto patched = movieService.patchMovieById(movieId, movieDto, null, MovieETags.expectedVersion(ifMatch, movieId));
+        return ResponseEntity.ok().eTag(MovieETags.of(patched)).body(patched);
+    }
+
+    // same as multipart, so a new poster can come along, both parts are optional
+    @PatchMapping(value = "/{movieId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @QueryBudget(statements = 25)
+    public ResponseEntity<MovieDto> patchMovieWithPosterHandler(@PathVariable Integer movieId,
+                                                                @RequestPart(required = false) MultipartFile file,
+                                                                @RequestPart(required = false) String movieDto,
+                                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws IOException {
+        if(file != null && file.isEmpty()) file = null;
+        MovieDto obj = movieDto == null ? null : convertToMovieDto(movieDto);
+        MovieDto patched = movieService.patchMovieById(movieId, obj, file, MovieETags.expectedVersion(ifMatch, movieId));
+        return ResponseEntity.ok().eTag(MovieETags.of(patched)).body(patched);
     }
 
     @DeleteMapping("/delete/{movieId}")
-    public ResponseEntity<String> deleteMovieHandler(@PathVariable Integer movieId) throws IOException {
-        return ResponseEntity.ok(movieService.deleteMovieById(movieId));
+    @QueryBudget(statements = 4)
+    public ResponseEntity<String> deleteMovieHandler(@PathVariable Integer movieId,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws IOException {
+        return ResponseEntity.ok(movieService.deleteMovieById(movieId, MovieETags.expectedVersion(ifMatch, movieId)));
     }
 
     @GetMapping("/paginated")
+    // page, cast of the page in one query, count
+    @QueryBudget(statements = 3)
     public ResponseEntity<MoviePageResponse> getAllMoviesPageHandler(
             @RequestParam(defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
-            @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize
+            @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(required = false) String fields
     ){
-        return ResponseEntity.ok(movieService.getAllMoviesWithPagination(pageNumber, pageSize));
+        if(fields != null) {
+            return pageResponse(movieService.getAllMoviesWithFields(pageNumber, pageSize,
+                    AppConstants.SORT_BY, AppConstants.SORT_DIRECTION, fields));
+        }
+        return pageResponse(movieService.getAllMoviesWithPagination(pageNumber, pageSize));
     }
 
     @GetMapping("/paginated-sorted")
+    @QueryBudget(statements = 3)
     public ResponseEntity<MoviePageResponse> getAllMoviesPageHandler(
             @RequestParam(defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
-            @RequestParam(defaultValue = AppConstants.SORT_DIRECTION, required = false) String direction
+            @RequestParam(defaultValue = AppConstants.SORT_DIRECTION, required = false) String direction,
+            @RequestParam(required = false) String fields
+    ){
+        // ?fields=movieId,title,poster selects just those columns, no entities and no cast unless asked
+        if(fields != null) {
+            return pageResponse(movieService.getAllMoviesWithFields(pageNumber, pageSize, sortBy, direction, fields));
+        }
+        return pageResponse(movieService.getAllMoviesWithPaginationAndSorting(pageNumber, pageSize, sortBy, direction));
+    }
+
+    // keyset mode, selected by the presence of the cursor param (empty for the first page)
+    @GetMapping(value = "/paginated-sorted", params = "cursor")
+    @QueryBudget(statements = 3)
+    public ResponseEntity<MovieCursorPageResponse> getAllMoviesCursorHandler(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
+            @RequestParam(defaultValue = AppConstants.SORT_DIRECTION, required = false) String direction,
+            @RequestParam(defaultValue = "false", required = false) boolean withCount
     ){
-        return ResponseEntity.ok(movieService.getAllMoviesWithPaginationAndSorting(pageNumber, pageSize, sortBy, direction));
+        if(pageSize > maxCursorPageSize) {
+            throw new InvalidCursorException("pageSize must be between 1 and " + maxCursorPageSize);
+        }
+        MovieCursorPageResponse page = movieService.getAllMoviesWithCursor(cursor, pageSize, sortBy, direction, withCount);
+        return ResponseEntity.ok()
+                .eTag(MovieETags.ofPage(page.movieDtos(), page.nextCursor(), page.totalElements()))
+                .body(page);
     }
 
-    private MovieDto convertToMovieDto(String movieObj) {
-        MovieDto movieDto = new MovieDto();
-        ObjectMapper objectMapper = new ObjectMapper();
+    // e.g. ?yearFrom=2019&yearTo=2022&studio=X&cast=Y, ordered by movieId, facet counts over the whole match
+    @GetMapping("/filter")
+    @QueryBudget(statements = 0)
+    public ResponseEntity<MovieFilterResponse> filterMoviesHandler(
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(required = false) List<String> studio,
+            @RequestParam(required = false) List<String> director,
+            @RequestParam(required = false) List<String> cast,
+            @RequestParam(defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+            @RequestParam(defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            @RequestParam(defaultValue = AppConstants.SORT_DIRECTION, required = false) String direction,
+            @RequestParam(defaultValue = AppConstants.FACET_LIMIT, required = false) Integer facetLimit
+    ){
+        MovieFilterResponse page = movieFacetService.filter(yearFrom, yearTo, studio, director, cast,
+                pageNumber, pageSize, direction, facetLimit);
+        return ResponseEntity.ok()
+                .eTag(MovieETags.ofPage(page.movieDtos(), page.totalElements(), page.facets()))
+                .body(page);
+    }
+
+    // weak, the tag covers the ids and versions on the page, not its exact bytes
+    private ResponseEntity<MoviePageResponse> pageResponse(MoviePageResponse page) {
+        return ResponseEntity.ok()
+                .eTag(MovieETags.ofPage(page.movieDtos(), page.pageNumber(), page.pageSize(), page.totalElements()))
+                .body(page);
+    }
+
+    // a malformed part or an unknown field is the client's mistake, answered with a 400
+    MovieDto convertToMovieDto(String movieObj) {
         try {
-            movieDto = objectMapper.readValue(movieObj, MovieDto.class);
+            return movieDtoReader.readValue(movieObj);
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            throw new InvalidMovieException("Malformed movieDto: " + e.getOriginalMessage());
         }
-
-        return movieDto;
     }
 }
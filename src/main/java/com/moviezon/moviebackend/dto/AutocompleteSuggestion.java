@@ -0,0 +1,13 @@
+package com.moviezon.moviebackend.dto;
+
+// weight is the number of movies the title or cast name appears in
+public record AutocompleteSuggestion(String text,
+                                     AutocompleteSuggestion.Type type,
+                                     int weight
+                                     ){
+
+    public enum Type {
+        TITLE,
+        CAST
+    }
+}
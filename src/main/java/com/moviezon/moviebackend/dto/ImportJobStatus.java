@@ -0,0 +1,23 @@
+package com.moviezon.moviebackend.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+// progress of a bulk import, errors holds the first few rejected rows
+public record ImportJobStatus(String jobId,
+                              ImportJobStatus.State state,
+                              long processed,
+                              long imported,
+                              long failed,
+                              List<String> errors,
+                              Instant startedAt,
+                              Instant finishedAt
+                              ){
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
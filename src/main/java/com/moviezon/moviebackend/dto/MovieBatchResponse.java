@@ -0,0 +1,10 @@
+package com.moviezon.moviebackend.dto;
+
+import java.util.List;
+
+// movies in request order, ids that matched nothing are listed instead of failing the call
+public record MovieBatchResponse(List<MovieDto> movieDtos,
+                                 List<Integer> missingIds
+                                 ){
+
+}
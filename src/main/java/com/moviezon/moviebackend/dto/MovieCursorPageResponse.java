@@ -0,0 +1,12 @@
+package com.moviezon.moviebackend.dto;
+
+import java.util.List;
+
+public record MovieCursorPageResponse(List<MovieDto> movieDtos,
+                                      Integer pageSize,
+                                      String nextCursor,
+                                      boolean isLast,
+                                      Long totalElements
+                                      ){
+
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.HashSet;
 import java.util.Set;
 
 //@Data
@@ -32,6 +33,8 @@ public class MovieDto {
 
     private String posterUrl;
 
+    private Integer version;
+
     public MovieDto(Integer movieId, String title, String director, String studio, Set<String> movieCast, Integer releaseYear, String poster, String posterUrl) {
         this.movieId = movieId;
         this.title = title;
@@ -109,4 +112,20 @@ public class MovieDto {
     public void setPosterUrl(String posterUrl) {
         this.posterUrl = posterUrl;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    // the cast set is copied too, so neither side sees the other's changes
+    public MovieDto copy() {
+        MovieDto copy = new MovieDto(movieId, title, director, studio,
+                movieCast == null ? null : new HashSet<>(movieCast), releaseYear, poster, posterUrl);
+        copy.setVersion(version);
+        return copy;
+    }
 }
@@ -0,0 +1,18 @@
+package com.moviezon.moviebackend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// one page of filtered movies, with value counts per facet over the whole match
+public record MovieFilterResponse(List<MovieDto> movieDtos,
+                                  Integer pageNumber,
+                                  Integer pageSize,
+                                  long totalElements,
+                                  int totalPages,
+                                  boolean isLast,
+                                  Map<String, List<FacetCount>> facets
+                                  ){
+
+    public record FacetCount(String value, int count) {
+    }
+}
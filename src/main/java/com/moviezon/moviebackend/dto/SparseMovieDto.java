@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// a movie read through ?fields=, the fields that were not asked for stay null and are not written
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SparseMovieDto extends MovieDto {
+}
@@ -6,10 +6,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.Set;
 
+// UPDATE statements carry only the columns that actually changed
 @Entity
+@DynamicUpdate
 public class Movie {
 
     @Id
@@ -28,7 +32,9 @@ public class Movie {
     @NotBlank(message = "Provide Movie's Studio!")
     private String studio;
 
+    // casts of up to 100 loaded movies are fetched in one IN query instead of one query per movie
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "movie_cast", joinColumns = @JoinColumn(name = "movie_id"))
     private Set<String> movieCast;
 
@@ -39,6 +45,11 @@ public class Movie {
     @NotBlank(message = "Provide movie's poster!")
     private String poster;
 
+    // bumped on every update, concurrent writers on a stale copy fail instead of overwriting
+    @Version
+    @Column(nullable = false)
+    private Integer version;
+
     public Movie(Integer movieId, String title, String director, String studio, Set<String> movieCast, Integer releaseYear, String poster) {
         this.movieId = movieId;
         this.title = title;
@@ -107,4 +118,12 @@ public class Movie {
     public void setPoster(String poster) {
         this.poster = poster;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class HashingCapacityExceededException extends RuntimeException {
+
+    public HashingCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class ImportCapacityExceededException extends RuntimeException {
+
+    public ImportCapacityExceededException(String message) {
+        super(message);
+    }
+}
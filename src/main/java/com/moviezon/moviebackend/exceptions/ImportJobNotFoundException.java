@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class ImportJobNotFoundException extends RuntimeException {
+
+    public ImportJobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class InvalidExportException extends RuntimeException {
+
+    public InvalidExportException(String message) {
+        super(message);
+    }
+}
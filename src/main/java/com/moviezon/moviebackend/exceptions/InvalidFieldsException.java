@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class InvalidFieldsException extends RuntimeException {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
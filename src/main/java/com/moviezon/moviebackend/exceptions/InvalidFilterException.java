@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class InvalidFilterException extends RuntimeException {
+
+    public InvalidFilterException(String message) {
+        super(message);
+    }
+}
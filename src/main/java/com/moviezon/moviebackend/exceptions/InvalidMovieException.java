@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class InvalidMovieException extends RuntimeException {
+
+    public InvalidMovieException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.moviezon.moviebackend.exceptions;
+
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
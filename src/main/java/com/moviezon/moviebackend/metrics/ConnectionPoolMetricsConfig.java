@@ -0,0 +1,73 @@
+package com.moviezon.moviebackend.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Hikari reports to a metrics tracker set before the pool starts.
+ * Acquire time is how long a request waited for a connection,
+ * usage time is how long it held one.
+ */
+@Configuration
+public class ConnectionPoolMetricsConfig {
+
+    @Bean
+    static BeanPostProcessor connectionPoolMetrics(ObjectProvider<MetricsRegistry> registryProvider) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && dataSource.getMetricsTrackerFactory() == null) {
+                    MetricsRegistry registry = registryProvider.getObject();
+                    dataSource.setMetricsTrackerFactory(trackerFactory(registry));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MetricsTrackerFactory trackerFactory(MetricsRegistry registry) {
+        return (poolName, poolStats) -> {
+            registerGauges(registry, poolName, poolStats);
+            Histogram acquire = registry.histogram("hikari_connection_acquire_seconds",
+                    "Time waited for a pooled connection", Histogram.SECONDS, "pool", poolName);
+            Histogram usage = registry.histogram("hikari_connection_usage_seconds",
+                    "Time a connection was held before being returned", Histogram.SECONDS, "pool", poolName);
+            Counter timeouts = registry.counter("hikari_connection_timeouts_total",
+                    "Connection requests that timed out", "pool", poolName);
+
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    acquire.observeNanos(elapsedAcquiredNanos);
+                }
+
+                @Override
+                public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                    usage.observe(elapsedBorrowedMillis / 1000.0);
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    timeouts.increment();
+                }
+            };
+        };
+    }
+
+    private static void registerGauges(MetricsRegistry registry, String poolName, PoolStats stats) {
+        registry.gauge("hikari_connections_active", "Connections in use",
+                stats::getActiveConnections, "pool", poolName);
+        registry.gauge("hikari_connections_idle", "Idle connections",
+                stats::getIdleConnections, "pool", poolName);
+        registry.gauge("hikari_connections_pending", "Threads waiting for a connection",
+                stats::getPendingThreads, "pool", poolName);
+        registry.gauge("hikari_connections_max", "Maximum pool size",
+                stats::getMaxConnections, "pool", poolName);
+    }
+}
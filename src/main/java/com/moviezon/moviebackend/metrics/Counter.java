@@ -0,0 +1,21 @@
+package com.moviezon.moviebackend.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// monotonically increasing count, LongAdder keeps concurrent increments cheap
+public class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long value() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,108 @@
+package com.moviezon.moviebackend.metrics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.SessionEventListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Counts every SQL statement Hibernate prepares and every entity it loads,
+ * in total and for the current request, and times statement execution.
+ * The hooks run inline with the query, so they only bump counters.
+ */
+@Configuration
+public class HibernateMetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateMetricsCustomizer(MetricsRegistry registry) {
+        Counter statements = registry.counter("hibernate_statements_total",
+                "SQL statements prepared by Hibernate");
+        ConcurrentMap<Class<?>, Counter> loadsByEntity = new ConcurrentHashMap<>();
+
+        StatementInspector inspector = sql -> {
+            statements.increment();
+            RequestQueryStats stats = RequestQueryStats.current();
+            if (stats != null) {
+                stats.statementPrepared(sql);
+            }
+            return sql;
+        };
+
+        Interceptor interceptor = new Interceptor() {
+            @Override
+            public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+                loadsByEntity.computeIfAbsent(entity.getClass(), type -> registry.counter(
+                        "hibernate_entity_loads_total", "Entities loaded by Hibernate",
+                        "entity", type.getSimpleName())).increment();
+                RequestQueryStats stats = RequestQueryStats.current();
+                if (stats != null) {
+                    stats.entityLoaded();
+                }
+                return false;
+            }
+        };
+
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+            properties.put(AvailableSettings.INTERCEPTOR, interceptor);
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, StatementTimer.class.getName());
+        };
+    }
+
+    /*
+     * Hibernate creates one per session by class name.
+     * A session can be handed to another thread, open-in-view binds the request's session
+     * to the async thread writing a streamed export, but it is never used by two threads at once.
+     * The thread that started the statement is kept anyway, so a start and an end
+     * from different threads are dropped instead of producing a bogus duration.
+     */
+    public static class StatementTimer implements SessionEventListener {
+
+        private long start;
+
+        private Thread startThread;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            start();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            record();
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            start();
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            record();
+        }
+
+        private void start() {
+            startThread = Thread.currentThread();
+            start = System.nanoTime();
+        }
+
+        private void record() {
+            if (startThread != Thread.currentThread()) {
+                return;
+            }
+            startThread = null;
+            RequestQueryStats stats = RequestQueryStats.current();
+            if (stats != null) {
+                stats.statementExecuted(System.nanoTime() - start);
+            }
+        }
+    }
+}
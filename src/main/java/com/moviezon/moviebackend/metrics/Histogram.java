@@ -0,0 +1,64 @@
+package com.moviezon.moviebackend.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Fixed bucket histogram.
+ * Each observation bumps one bucket and the sum, no locking and no allocation,
+ * the cumulative counts Prometheus expects are only built on scrape.
+ */
+public class Histogram {
+
+    // Prometheus default buckets, in seconds
+    public static final double[] SECONDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    // small integer counts, such as statements per request
+    public static final double[] COUNTS = {0, 1, 2, 3, 5, 10, 20, 50, 100, 200, 500};
+
+    private final double[] bounds;
+
+    // one slot per upper bound plus a last one for +Inf
+    private final LongAdder[] buckets;
+
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double[] bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        // not found gives -(insertion point) - 1, the first bound above the value
+        buckets[index >= 0 ? index : -index - 1].increment();
+        sum.add(value);
+    }
+
+    public void observeNanos(long nanos) {
+        observe(nanos / 1_000_000_000.0);
+    }
+
+    double[] bounds() {
+        return bounds;
+    }
+
+    // running totals per bucket, the last one is the overall count
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    double sum() {
+        return sum.sum();
+    }
+}
@@ -0,0 +1,129 @@
+package com.moviezon.moviebackend.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+
+/*
+ * In-process metrics, rendered in the Prometheus text format by /metrics.
+ * A metric is a name plus label pairs given as "key", "value", ...
+ * Hot paths should look their Counter or Histogram up once and keep it,
+ * each lookup builds the label string.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER)
+                .children.computeIfAbsent(labelString(labels), key -> new Counter());
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM)
+                .children.computeIfAbsent(labelString(labels), key -> new Histogram(buckets));
+    }
+
+    // value read on every scrape, registering the same name and labels again replaces it
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).children.put(labelString(labels), value);
+    }
+
+    public void scrape(Writer out) throws IOException {
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.write("# HELP " + name + " " + family.help + "\n");
+            out.write("# TYPE " + name + " " + family.type.name().toLowerCase() + "\n");
+
+            for (Map.Entry<String, Object> child : new TreeMap<>(family.children).entrySet()) {
+                String labels = child.getKey();
+                Object metric = child.getValue();
+                if (metric instanceof Counter counter) {
+                    sample(out, name, labels, counter.value());
+                } else if (metric instanceof DoubleSupplier gauge) {
+                    sample(out, name, labels, gauge.getAsDouble());
+                } else if (metric instanceof Histogram histogram) {
+                    writeHistogram(out, name, labels, histogram);
+                } else {
+                    throw new IllegalStateException("Unknown metric " + name);
+                }
+            }
+        }
+    }
+
+    private void writeHistogram(Writer out, String name, String labels, Histogram histogram) throws IOException {
+        double[] bounds = histogram.bounds();
+        long[] counts = histogram.cumulativeCounts();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int i = 0; i < bounds.length; i++) {
+            sample(out, name + "_bucket", prefix + "le=\"" + format(bounds[i]) + "\"", counts[i]);
+        }
+        sample(out, name + "_bucket", prefix + "le=\"+Inf\"", counts[bounds.length]);
+        sample(out, name + "_sum", labels, histogram.sum());
+        sample(out, name + "_count", labels, counts[bounds.length]);
+    }
+
+    private void sample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write("{" + labels + "}");
+        }
+        out.write(" " + format(value) + "\n");
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labelString(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as key, value pairs");
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String escape(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // whole numbers without the trailing .0
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private enum Type {COUNTER, GAUGE, HISTOGRAM}
+
+    private static final class Family {
+        private final String help;
+        private final Type type;
+        // label string to Counter, Histogram or DoubleSupplier
+        private final ConcurrentMap<String, Object> children = new ConcurrentHashMap<>();
+
+        private Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.moviezon.moviebackend.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Declared SQL budget of an endpoint, checked by QueryBudgetPolicy on every request.
+ * Endpoints without one get query.budget.max-statements and query.budget.max-millis.
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    // most SQL statements one request may run
+    int statements();
+
+    // most DB time in milliseconds, negative falls back to query.budget.max-millis
+    long millis() default -1;
+}
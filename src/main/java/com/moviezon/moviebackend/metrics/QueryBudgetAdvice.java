@@ -0,0 +1,58 @@
+package com.moviezon.moviebackend.metrics;
+
+import com.moviezon.moviebackend.exceptions.QueryBudgetExceededException;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.List;
+
+/*
+ * Runs right before the body is written, when the handler's queries are done
+ * but headers can still be set.
+ * Over budget adds X-Query-Budget-Exceeded, or fails the request in strict mode.
+ */
+@RestControllerAdvice
+public class QueryBudgetAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String BUDGET_HEADER = "X-Query-Budget-Exceeded";
+
+    private final QueryBudgetPolicy policy;
+
+    public QueryBudgetAdvice(QueryBudgetPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        // error responses pass through here too, do not fail them a second time
+        if (stats == null || body instanceof ProblemDetail
+                || !(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+
+        List<String> violations = policy.check(servletRequest.getServletRequest(), stats);
+        if (violations.isEmpty()) {
+            return body;
+        }
+        if (policy.isStrict()) {
+            throw new QueryBudgetExceededException("Query budget exceeded: " + String.join("; ", violations));
+        }
+        response.getHeaders().add(BUDGET_HEADER, String.join("; ", violations));
+        return body;
+    }
+}
@@ -0,0 +1,35 @@
+package com.moviezon.moviebackend.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/*
+ * RequestMetricsFilter sits outside the security chain, so its counts include
+ * authentication (loadUserByUsername and the user's eager refresh token with
+ * jwt.claims-principal.enabled=false). Budgets are declared per handler,
+ * so they are measured from the moment the handler is about to run.
+ */
+@Configuration
+public class QueryBudgetConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NonNull HttpServletRequest request,
+                                     @NonNull HttpServletResponse response,
+                                     @NonNull Object handler) {
+                RequestQueryStats stats = RequestQueryStats.current();
+                if (stats != null) {
+                    stats.handlerStarting();
+                }
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.moviezon.moviebackend.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares what a request's handler ran against its budget:
+ * the statement count, the DB time, and how often one select repeated.
+ * A select prepared again and again with only its parameters changing
+ * is the usual shape of an N+1, like loading movieCast movie by movie.
+ */
+@Component
+public class QueryBudgetPolicy {
+
+    private final int defaultStatements;
+
+    private final long defaultMillis;
+
+    private final int repeatThreshold;
+
+    private final boolean strict;
+
+    public QueryBudgetPolicy(@Value("${query.budget.max-statements:20}") int defaultStatements,
+                             @Value("${query.budget.max-millis:1000}") long defaultMillis,
+                             @Value("${query.budget.repeat-threshold:5}") int repeatThreshold,
+                             @Value("${query.budget.strict:false}") boolean strict) {
+        this.defaultStatements = defaultStatements;
+        this.defaultMillis = defaultMillis;
+        this.repeatThreshold = repeatThreshold;
+        this.strict = strict;
+    }
+
+    // fail the request instead of only reporting, meant for integration tests
+    public boolean isStrict() {
+        return strict;
+    }
+
+    // empty when the request stayed within its budget
+    public List<String> check(HttpServletRequest request, RequestQueryStats stats) {
+        QueryBudget budget = budgetOf(request);
+        int maxStatements = budget != null ? budget.statements() : defaultStatements;
+        long maxMillis = budget != null && budget.millis() >= 0 ? budget.millis() : defaultMillis;
+
+        List<String> violations = new ArrayList<>();
+        if (stats.handlerStatements() > maxStatements) {
+            violations.add("statements " + stats.handlerStatements() + " > " + maxStatements);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(stats.handlerDbNanos());
+        if (millis > maxMillis) {
+            violations.add("db time " + millis + "ms > " + maxMillis + "ms");
+        }
+        Map.Entry<String, Integer> repeated = stats.mostRepeated();
+        if (repeated != null && repeated.getValue() >= repeatThreshold) {
+            violations.add("same select run " + repeated.getValue() + " times, likely N+1");
+        }
+        return violations;
+    }
+
+    // method level budget wins over one on the controller
+    private QueryBudget budgetOf(HttpServletRequest request) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(handler.getMethod(), QueryBudget.class);
+            return budget != null ? budget
+                    : AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), QueryBudget.class);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,134 @@
+package com.moviezon.moviebackend.metrics;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Outermost filter, so the latency covers security and the JWT check too.
+ * Requests are labelled by their route pattern (/api/v1/movie/{movieId}),
+ * never the raw path, to keep the number of series bounded.
+ * Statement and DB time histograms cover the whole request, authentication included;
+ * requests over their handler's query budget are logged with the most repeated statement.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private final MetricsRegistry registry;
+
+    private final QueryBudgetPolicy queryBudgetPolicy;
+
+    public RequestMetricsFilter(MetricsRegistry registry, QueryBudgetPolicy queryBudgetPolicy) {
+        this.registry = registry;
+        this.queryBudgetPolicy = queryBudgetPolicy;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        RequestQueryStats stats = RequestQueryStats.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueryStats.end();
+            String method = request.getMethod();
+            String uri = routeOf(request, response);
+            registry.histogram("http_server_request_statements", "SQL statements per request",
+                    Histogram.COUNTS, "method", method, "uri", uri).observe(stats.statements());
+            registry.histogram("http_server_request_entity_loads", "Entities loaded per request",
+                    Histogram.COUNTS, "method", method, "uri", uri).observe(stats.entityLoads());
+            registry.histogram("http_server_request_db_seconds", "SQL execution time per request",
+                    Histogram.SECONDS, "method", method, "uri", uri).observeNanos(stats.dbNanos());
+            checkQueryBudget(request, method, uri, stats);
+
+            // streaming responses finish on another thread, time them to completion,
+            // a stream that timed out or broke is recorded once with its failure status
+            if (request.isAsyncStarted()) {
+                AtomicBoolean recorded = new AtomicBoolean();
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        if (recorded.compareAndSet(false, true)) {
+                            recordLatency(method, uri, response.getStatus(), start);
+                        }
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        if (recorded.compareAndSet(false, true)) {
+                            recordLatency(method, uri, HttpStatus.SERVICE_UNAVAILABLE.value(), start);
+                        }
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        if (recorded.compareAndSet(false, true)) {
+                            recordLatency(method, uri, errorStatus(response), start);
+                        }
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                recordLatency(method, uri, response.getStatus(), start);
+            }
+        }
+    }
+
+    private void checkQueryBudget(HttpServletRequest request, String method, String uri, RequestQueryStats stats) {
+        List<String> violations = queryBudgetPolicy.check(request, stats);
+        if (violations.isEmpty()) {
+            return;
+        }
+        registry.counter("query_budget_violations_total", "Requests over their query budget",
+                "method", method, "uri", uri).increment();
+        Map.Entry<String, Integer> repeated = stats.mostRepeated();
+        log.warn("Query budget exceeded on {} {}: {}. Most repeated: {}", method, uri,
+                String.join("; ", violations),
+                repeated == null ? "none" : repeated.getValue() + "x " + repeated.getKey());
+    }
+
+    private void recordLatency(String method, String uri, int status, long start) {
+        registry.histogram("http_server_requests_seconds", "Request latency by route and status",
+                        Histogram.SECONDS, "method", method, "uri", uri, "status", Integer.toString(status))
+                .observeNanos(System.nanoTime() - start);
+    }
+
+    // the status may still read 200 when the stream broke after the headers went out
+    private int errorStatus(HttpServletResponse response) {
+        int status = response.getStatus();
+        return status >= 400 ? status : HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    private String routeOf(HttpServletRequest request, HttpServletResponse response) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        // rejected before a handler was picked (401, 403) or nothing matched
+        return response.getStatus() == HttpStatus.NOT_FOUND.value() ? "NOT_FOUND" : "UNKNOWN";
+    }
+}
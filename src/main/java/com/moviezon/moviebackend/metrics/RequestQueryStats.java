@@ -0,0 +1,102 @@
+package com.moviezon.moviebackend.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * SQL statements, entity loads and DB time of the request running on this thread.
+ * RequestMetricsFilter opens and closes it, the Hibernate hooks count into it.
+ * Totals cover the whole request, security chain included; budgets only look at
+ * what ran after QueryBudgetConfig marked the handler start.
+ * Work handed to another thread (async streaming, the import executor) is not counted here.
+ */
+public final class RequestQueryStats {
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private int entityLoads;
+
+    private long dbNanos;
+
+    // what the security chain ran before the handler, e.g. the user lookup for a JWT
+    private int statementsBeforeHandler;
+
+    private long dbNanosBeforeHandler;
+
+    // select text as prepared, parameters are still ? so N+1 lookups collapse to one key
+    private final Map<String, Integer> selectCounts = new HashMap<>();
+
+    private RequestQueryStats() {
+    }
+
+    static RequestQueryStats begin() {
+        RequestQueryStats stats = new RequestQueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    // null outside of a request, e.g. startup or scheduled work
+    public static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    // repeats seen so far belong to the filters, the handler starts with a clean slate
+    void handlerStarting() {
+        statementsBeforeHandler = statements;
+        dbNanosBeforeHandler = dbNanos;
+        selectCounts.clear();
+    }
+
+    void statementPrepared(String sql) {
+        statements++;
+        // writes repeat legitimately, one insert per cast member
+        if (sql.regionMatches(true, 0, "select", 0, 6)) {
+            selectCounts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void entityLoaded() {
+        entityLoads++;
+    }
+
+    void statementExecuted(long nanos) {
+        dbNanos += nanos;
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public int entityLoads() {
+        return entityLoads;
+    }
+
+    public long dbNanos() {
+        return dbNanos;
+    }
+
+    public int handlerStatements() {
+        return statements - statementsBeforeHandler;
+    }
+
+    public long handlerDbNanos() {
+        return dbNanos - dbNanosBeforeHandler;
+    }
+
+    // the select run most often since the handler started, null if none ran
+    public Map.Entry<String, Integer> mostRepeated() {
+        Map.Entry<String, Integer> most = null;
+        for (Map.Entry<String, Integer> entry : selectCounts.entrySet()) {
+            if (most == null || entry.getValue() > most.getValue()) {
+                most = entry;
+            }
+        }
+        return most;
+    }
+}
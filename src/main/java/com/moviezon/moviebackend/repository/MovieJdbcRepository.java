@@ -0,0 +1,95 @@
+package com.moviezon.moviebackend.repository;
+
+import com.moviezon.moviebackend.entities.Movie;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Plain JDBC batch inserts for bulk loads.
+ * Hibernate turns batching off for IDENTITY ids, here the whole chunk goes out as one batch
+ * and the driver returns the generated ids in insert order.
+ * On MySQL add rewriteBatchedStatements=true to the url so a batch becomes multi-row INSERTs.
+ */
+@Repository
+public class MovieJdbcRepository {
+
+    private static final String INSERT_MOVIE =
+            "insert into movie (title, director, studio, release_year, poster, version) values (?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_CAST =
+            "insert into movie_cast (movie_id, movie_cast) values (?, ?)";
+
+    private static final String COUNT_BY_POSTER =
+            "select count(*) from movie where poster = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MovieJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // inserts the movies and their casts in one transaction and sets the generated movieIds
+    @Transactional
+    public void insertAll(List<Movie> movies) {
+        if (movies.isEmpty()) {
+            return;
+        }
+
+        //1. movie rows, one batch
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_MOVIE, new String[]{"movie_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Movie movie = movies.get(i);
+                        ps.setString(1, movie.getTitle());
+                        ps.setString(2, movie.getDirector());
+                        ps.setString(3, movie.getStudio());
+                        ps.setInt(4, movie.getReleaseYear());
+                        ps.setString(5, movie.getPoster());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return movies.size();
+                    }
+                },
+                keyHolder);
+
+        //2. hand the ids back, the key column is named differently per driver so take the only value
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < movies.size(); i++) {
+            Number movieId = (Number) keys.get(i).values().iterator().next();
+            movies.get(i).setMovieId(movieId.intValue());
+        }
+
+        //3. cast rows, one batch for the whole chunk
+        List<Object[]> castRows = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (movie.getMovieCast() != null) {
+                for (String castMember : movie.getMovieCast()) {
+                    castRows.add(new Object[]{movie.getMovieId(), castMember});
+                }
+            }
+        }
+        if (!castRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_CAST, castRows);
+        }
+    }
+
+    public long countByPoster(String poster) {
+        Long count = jdbcTemplate.queryForObject(COUNT_BY_POSTER, Long.class, poster);
+        return count == null ? 0 : count;
+    }
+}
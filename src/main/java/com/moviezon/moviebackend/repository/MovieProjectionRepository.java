@@ -0,0 +1,14 @@
+package com.moviezon.moviebackend.repository;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Set;
+
+// read paths that select columns straight into dtos, no managed entities involved
+public interface MovieProjectionRepository {
+
+    // fields are Movie attribute names, movieCast is loaded with one extra query for the page
+    Page<MovieDto> findAllProjected(Set<String> fields, Pageable pageable);
+}
@@ -0,0 +1,115 @@
+package com.moviezon.moviebackend.repository;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.dto.SparseMovieDto;
+import com.moviezon.moviebackend.entities.Movie;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Tuple queries over exactly the requested columns.
+ * Rows come back as values, so there is no persistence context entry,
+ * no dirty checking snapshot and no lazy cast proxy per movie.
+ */
+public class MovieProjectionRepositoryImpl implements MovieProjectionRepository {
+
+    private static final String CAST_FIELD = "movieCast";
+
+    private final EntityManager entityManager;
+
+    public MovieProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<MovieDto> findAllProjected(Set<String> fields, Pageable pageable) {
+        //1. one row per movie with only the scalar columns asked for
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Movie> movie = query.from(Movie.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            if (!field.equals(CAST_FIELD)) {
+                selections.add(movie.get(field).alias(field));
+            }
+        }
+        query.multiselect(selections);
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), movie, cb));
+
+        List<Tuple> rows = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        List<MovieDto> movieDtos = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            movieDtos.add(toMovieDto(row, fields));
+        }
+
+        //2. casts for the whole page in one query, only when asked for
+        if (fields.contains(CAST_FIELD) && !movieDtos.isEmpty()) {
+            loadCasts(movieDtos);
+        }
+
+        //3. count only when the page does not already tell the total
+        return PageableExecutionUtils.getPage(movieDtos, pageable, this::count);
+    }
+
+    private void loadCasts(List<MovieDto> movieDtos) {
+        Map<Integer, MovieDto> byId = new HashMap<>();
+        for (MovieDto movieDto : movieDtos) {
+            movieDto.setMovieCast(new HashSet<>());
+            byId.put(movieDto.getMovieId(), movieDto);
+        }
+
+        List<Object[]> castRows = entityManager.createQuery(
+                        "select m.movieId, c from Movie m join m.movieCast c where m.movieId in :ids", Object[].class)
+                .setParameter("ids", byId.keySet())
+                .getResultList();
+        for (Object[] castRow : castRows) {
+            byId.get((Integer) castRow[0]).getMovieCast().add((String) castRow[1]);
+        }
+    }
+
+    private long count() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        query.select(cb.count(query.from(Movie.class)));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private MovieDto toMovieDto(Tuple row, Set<String> fields) {
+        MovieDto movieDto = new SparseMovieDto();
+        for (String field : fields) {
+            switch (field) {
+                case "movieId" -> movieDto.setMovieId(row.get(field, Integer.class));
+                case "title" -> movieDto.setTitle(row.get(field, String.class));
+                case "director" -> movieDto.setDirector(row.get(field, String.class));
+                case "studio" -> movieDto.setStudio(row.get(field, String.class));
+                case "releaseYear" -> movieDto.setReleaseYear(row.get(field, Integer.class));
+                case "poster" -> movieDto.setPoster(row.get(field, String.class));
+                case "version" -> movieDto.setVersion(row.get(field, Integer.class));
+                default -> {
+                    // movieCast is filled in separately
+                }
+            }
+        }
+        return movieDto;
+    }
+}
@@ -1,8 +1,49 @@
 package com.moviezon.moviebackend.repository;
 
 import com.moviezon.moviebackend.entities.Movie;
+import com.moviezon.moviebackend.utils.AppConstants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface MovieRepository extends JpaRepository<Movie, Integer> {
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
+public interface MovieRepository extends JpaRepository<Movie, Integer>, MovieProjectionRepository {
+
+    // whole list, so the cast can be join fetched without the in-memory pagination trap
+    @Override
+    @EntityGraph(attributePaths = "movieCast")
+    List<Movie> findAll();
+
+    // one IN query for a batch of ids, casts joined in
+    @EntityGraph(attributePaths = "movieCast")
+    List<Movie> findByMovieIdIn(Collection<Integer> movieIds);
+
+    // keyset scrolling, seeks past the position instead of using OFFSET and runs no count query
+    Window<Movie> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // forward-only, read-only cursor over the whole table, must be consumed inside a transaction
+    @QueryHints(value = {
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select m from Movie m")
+    Stream<Movie> streamAllBy();
+
+    // how many movies point at a poster file, content addressed posters can be shared
+    long countByPoster(String poster);
+
+    // poster names in order, seeking past the last one seen, each file listed once
+    @Query("select distinct m.poster from Movie m where m.poster > :after order by m.poster")
+    List<String> findPostersAfter(@Param("after") String after, Limit limit);
 }
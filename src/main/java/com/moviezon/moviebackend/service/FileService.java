@@ -5,9 +5,33 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
 
 public interface FileService {
+    // the returned name stays pinned against deletion until unpin is called for it
     String uploadFile(String path, MultipartFile file) throws IOException;
 
-    InputStream getResourceFile(String path, String name) throws FileNotFoundException;
+    String storeFile(String path, String originalFileName, InputStream in) throws IOException;
+
+    void unpin(String name);
+
+    // true when an upload named originalFileName would overwrite currentName rather than add a file
+    boolean replacesInPlace(String currentName, String originalFileName);
+
+    // writes the upload aside, replaceFile swaps it in once the row pointing at the name is saved
+    Path stageFile(String path, MultipartFile file) throws IOException;
+
+    void replaceFile(String path, String name, Path staged) throws IOException;
+
+    Path getResourceFile(String path, String name) throws FileNotFoundException;
+
+    PosterFile getResourceFile(String path, String name, Integer width) throws FileNotFoundException;
+
+    void deleteFile(String path, String name) throws IOException;
+
+    // deletes only when the name is not pinned and referenced says no, both checked under the name's lock
+    boolean deleteFileIfUnreferenced(String path, String name, BooleanSupplier referenced) throws IOException;
+
+    String detectContentType(Path file) throws IOException;
 }
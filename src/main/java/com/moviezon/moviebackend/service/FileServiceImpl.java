@@ -1,19 +1,89 @@
 package com.moviezon.moviebackend.service;
 
+import com.moviezon.moviebackend.exceptions.FileExistsException;
+import com.moviezon.moviebackend.metrics.Counter;
+import com.moviezon.moviebackend.metrics.Histogram;
+import com.moviezon.moviebackend.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
 
 @Service
 public class FileServiceImpl implements FileService {
 
+    // sha-256 hex name plus an optional extension, as written by the content addressed mode
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("^[0-9a-f]{64}(\\.[a-z0-9]{1,8})?$");
+
+    private static final String INCOMING_DIR = ".incoming";
+
+    private static final int LOCK_STRIPES = 256;
+
+    /*
+     * An upload that dedupes onto an existing file and a release of that file race:
+     * the release counts no movie yet and deletes what the upload is about to reference.
+     * Storing and releasing a name hold the same striped lock, and a stored name is
+     * pinned until the caller has written (or given up on) the row pointing at it.
+     */
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    // file name -> uploads still holding it
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+
+    private final PosterDerivativeService posterDerivativeService;
+
+    private final boolean contentAddressed;
+
+    // bytes over seconds gives the upload throughput
+    private final Counter uploadedBytes;
+
+    private final Histogram uploadSeconds;
+
+    public FileServiceImpl(PosterDerivativeService posterDerivativeService,
+                           MetricsRegistry metricsRegistry,
+                           @Value("${project.poster.storage:flat}") String storageMode) {
+        this.posterDerivativeService = posterDerivativeService;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.contentAddressed = storageMode.equalsIgnoreCase("content-addressed");
+        this.uploadedBytes = metricsRegistry.counter("poster_upload_bytes_total", "Poster bytes written to storage");
+        this.uploadSeconds = metricsRegistry.histogram("poster_upload_seconds",
+                "Time to write a poster to storage", Histogram.SECONDS);
+    }
+
     @Override
     public String uploadFile(String path, MultipartFile file) throws IOException {
-        String fileName = file.getOriginalFilename();
+        try (InputStream in = file.getInputStream()) {
+            return storeFile(path, file.getOriginalFilename(), in);
+        }
+    }
+
+    @Override
+    public String storeFile(String path, String originalFileName, InputStream in) throws IOException {
+        if (contentAddressed) {
+            return storeContentAddressed(path, originalFileName, in);
+        }
+
+        String fileName = originalFileName;
         String filePath = path + File.separator + fileName;
 
         File dir = new File(path);
@@ -21,14 +91,217 @@ public class FileServiceImpl implements FileService {
             dir.mkdirs();
         }
 
-        Files.copy(file.getInputStream(), Paths.get(filePath));
+        // copy refuses to overwrite, so two concurrent uploads of one name cannot both win
+        long start = System.nanoTime();
+        ReentrantLock lock = lockFor(fileName);
+        lock.lock();
+        try {
+            recordUpload(Files.copy(in, Paths.get(filePath)), start);
+            pin(fileName);
+        } catch (FileAlreadyExistsException e) {
+            throw new FileExistsException("File Already Exists! Please give another file");
+        } finally {
+            lock.unlock();
+        }
+        posterDerivativeService.generateAsync(Paths.get(filePath));
+        return fileName;
+    }
+
+    /*
+     * hash the bytes while they are written to a temp file,
+     * then move the temp file to <root>/<ab>/<cd>/<hash>.<ext> in one rename.
+     * An identical upload finds the target already there and is dropped,
+     * movies sharing it are counted through their poster column.
+     */
+    private String storeContentAddressed(String path, String originalFileName, InputStream in) throws IOException {
+        Path root = Paths.get(path);
+        Path incoming = Files.createDirectories(root.resolve(INCOMING_DIR));
+        Path temp = Files.createTempFile(incoming, "upload", ".part");
+
+        MessageDigest digest = sha256();
+        long start = System.nanoTime();
+        try (InputStream digestIn = new DigestInputStream(in, digest)) {
+            recordUpload(Files.copy(digestIn, temp, StandardCopyOption.REPLACE_EXISTING), start);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        String fileName = HexFormat.of().formatHex(digest.digest()) + extensionOf(originalFileName);
+        Path target = resolveStored(root, fileName);
+        ReentrantLock lock = lockFor(fileName);
+        lock.lock();
+        try {
+            if (Files.exists(target)) {
+                Files.delete(temp);
+                pin(fileName);
+                return fileName;
+            }
+
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            pin(fileName);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        posterDerivativeService.generateAsync(target);
         return fileName;
     }
 
+    // content addressed names change with the bytes, only flat storage hands a name out twice
+    @Override
+    public boolean replacesInPlace(String currentName, String originalFileName) {
+        return !contentAddressed && currentName != null && currentName.equals(originalFileName);
+    }
 
     @Override
-    public InputStream getResourceFile(String path, String fileName) throws FileNotFoundException {
-        String filePath = path + File.separator + fileName;
-        return new FileInputStream(filePath);
+    public Path stageFile(String path, MultipartFile file) throws IOException {
+        Path incoming = Files.createDirectories(Paths.get(path).resolve(INCOMING_DIR));
+        Path temp = Files.createTempFile(incoming, "upload", ".part");
+
+        long start = System.nanoTime();
+        try (InputStream in = file.getInputStream()) {
+            recordUpload(Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING), start);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    // one rename, so a concurrent read sees either the old poster or the new one
+    @Override
+    public void replaceFile(String path, String fileName, Path staged) throws IOException {
+        Path target = Paths.get(path).resolve(fileName);
+        ReentrantLock lock = lockFor(fileName);
+        lock.lock();
+        try {
+            Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            posterDerivativeService.deleteDerivatives(target);
+        } finally {
+            lock.unlock();
+        }
+        posterDerivativeService.generateAsync(target);
+    }
+
+    @Override
+    public void unpin(String fileName) {
+        pins.computeIfPresent(fileName, (name, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void pin(String fileName) {
+        pins.merge(fileName, 1, Integer::sum);
+    }
+
+    private ReentrantLock lockFor(String fileName) {
+        return locks[Math.floorMod(fileName.hashCode(), locks.length)];
+    }
+
+    private void recordUpload(long bytes, long start) {
+        uploadedBytes.add(bytes);
+        uploadSeconds.observeNanos(System.nanoTime() - start);
+    }
+
+    @Override
+    public Path getResourceFile(String path, String fileName) throws FileNotFoundException {
+        Path root = Paths.get(path).toAbsolutePath().normalize();
+        Path filePath = resolveStored(root, fileName).normalize();
+
+        // names like ../x must not escape the poster directory
+        if (!filePath.startsWith(root) || !Files.isRegularFile(filePath)) {
+            throw new FileNotFoundException("File not found: " + fileName);
+        }
+        return filePath;
+    }
+
+    // a width picks the closest generated derivative, falling back to the original
+    @Override
+    public PosterFile getResourceFile(String path, String fileName, Integer width) throws FileNotFoundException {
+        Path original = getResourceFile(path, fileName);
+        return width == null ? new PosterFile(original, false) : posterDerivativeService.resolve(original, width);
+    }
+
+    @Override
+    public void deleteFile(String path, String fileName) throws IOException {
+        Path filePath = resolveStored(Paths.get(path), fileName);
+        Files.deleteIfExists(filePath);
+        posterDerivativeService.deleteDerivatives(filePath);
+    }
+
+    @Override
+    public boolean deleteFileIfUnreferenced(String path, String fileName, BooleanSupplier referenced) throws IOException {
+        ReentrantLock lock = lockFor(fileName);
+        lock.lock();
+        try {
+            if (pins.containsKey(fileName) || referenced.getAsBoolean()) {
+                return false;
+            }
+            deleteFile(path, fileName);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // sniff the magic bytes first, the file name is only a fallback
+    @Override
+    public String detectContentType(Path file) throws IOException {
+        byte[] header = new byte[12];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+
+        if (read >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (read >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (read >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (read >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+
+        return MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    // content addressed names live two shard levels down, anything else sits flat under the root
+    private Path resolveStored(Path root, String fileName) {
+        if (CONTENT_ADDRESSED_NAME.matcher(fileName).matches()) {
+            return root.resolve(fileName.substring(0, 2))
+                    .resolve(fileName.substring(2, 4))
+                    .resolve(fileName);
+        }
+        return root.resolve(fileName);
+    }
+
+    private String extensionOf(String fileName) {
+        if (fileName == null || fileName.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]", "");
+        if (extension.isEmpty() || extension.length() > 8) {
+            return "";
+        }
+        return "." + extension;
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -0,0 +1,362 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.AutocompleteSuggestion;
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.utils.TextTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Type-ahead over movie titles and cast names.
+ * Every phrase is indexed under each of its word starts, so "kni" finds "The Dark Knight",
+ * and each trie node keeps the best weight below it, so the top k come out best first
+ * without walking the whole subtree.
+ * Writes are applied incrementally from MovieChangedEvent; the periodic rebuild
+ * fills a fresh trie off the lock and swaps it in.
+ */
+@Slf4j
+@Service
+public class MovieAutocompleteService {
+
+    private static final int MAX_SUGGESTIONS = 50;
+
+    private final MovieService movieService;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index();
+
+    // non null while a rebuild is running, writes seen meanwhile are replayed onto the new trie
+    private List<MovieChangedEvent> pending;
+
+    public MovieAutocompleteService(MovieService movieService) {
+        this.movieService = movieService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${movie.autocomplete.rebuild-ms:3600000}",
+            fixedDelayString = "${movie.autocomplete.rebuild-ms:3600000}")
+    public void rebuild() {
+        //1. start recording writes, unless a rebuild is already running
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        //2. fill a fresh trie from the database, readers keep using the current one
+        Index fresh = new Index();
+        try {
+            movieService.streamAllMovies(fresh::load);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        //3. replay the writes that raced with the scan and swap, ones the scan already saw are dropped
+        lock.writeLock().lock();
+        try {
+            pending.forEach(fresh::apply);
+            pending = null;
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Autocomplete index built with {} phrases", fresh.phrases.size());
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            index.apply(event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<AutocompleteSuggestion> suggest(String prefix, int k) {
+        String key = String.join(" ", TextTokenizer.tokenize(prefix));
+        int limit = Math.min(k, MAX_SUGGESTIONS);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return index.top(key, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Phrases keyed by type and normalized text, the trie over their word starts,
+     * and which phrases each movie contributed so an update or delete can take them back.
+     * Not thread safe, the service guards it.
+     */
+    private static final class Index {
+
+        private final Node root = new Node();
+
+        private final Map<String, Phrase> phrases = new HashMap<>();
+
+        private final Map<Integer, List<Phrase>> moviePhrases = new HashMap<>();
+
+        private final MovieVersions versions = new MovieVersions();
+
+        // a movie read by the rebuild scan
+        void load(MovieDto movie) {
+            versions.loaded(movie);
+            add(movie);
+        }
+
+        // an event older than what the index holds, e.g. a late update, is ignored
+        void apply(MovieChangedEvent event) {
+            if (!versions.accept(event)) {
+                return;
+            }
+            remove(event.movieId());
+            if (!event.isDeleted()) {
+                add(event.movie());
+            }
+        }
+
+        void add(MovieDto movie) {
+            List<Phrase> contributed = new ArrayList<>();
+            addPhrase(contributed, movie.getTitle(), AutocompleteSuggestion.Type.TITLE);
+            if (movie.getMovieCast() != null) {
+                for (String castMember : movie.getMovieCast()) {
+                    addPhrase(contributed, castMember, AutocompleteSuggestion.Type.CAST);
+                }
+            }
+            moviePhrases.put(movie.getMovieId(), contributed);
+        }
+
+        void remove(Integer movieId) {
+            List<Phrase> contributed = moviePhrases.remove(movieId);
+            if (contributed == null) {
+                return;
+            }
+            for (Phrase phrase : contributed) {
+                phrase.weight--;
+                if (phrase.weight == 0) {
+                    phrases.remove(phrase.id);
+                }
+                for (String key : phrase.keys) {
+                    if (phrase.weight == 0) {
+                        unlink(key, phrase);
+                    } else {
+                        refresh(key);
+                    }
+                }
+            }
+        }
+
+        private void addPhrase(List<Phrase> contributed, String text, AutocompleteSuggestion.Type type) {
+            List<String> tokens = TextTokenizer.tokenize(text);
+            if (tokens.isEmpty()) {
+                return;
+            }
+            String id = type + ":" + String.join(" ", tokens);
+            Phrase phrase = phrases.get(id);
+            if (phrase == null) {
+                phrase = new Phrase(id, text.strip(), type, wordStarts(tokens));
+                phrases.put(id, phrase);
+                for (String key : phrase.keys) {
+                    link(key, phrase);
+                }
+            }
+            // the same name twice in one cast list still counts once
+            if (contributed.contains(phrase)) {
+                return;
+            }
+            contributed.add(phrase);
+            phrase.weight++;
+            for (String key : phrase.keys) {
+                refresh(key);
+            }
+        }
+
+        // "the dark knight" -> "the dark knight", "dark knight", "knight"
+        private Set<String> wordStarts(List<String> tokens) {
+            Set<String> keys = new HashSet<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+            }
+            return keys;
+        }
+
+        private void link(String key, Phrase phrase) {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            }
+            node.phrases.add(phrase);
+        }
+
+        private void unlink(String key, Phrase phrase) {
+            Deque<Node> path = walk(key);
+            if (path == null) {
+                return;
+            }
+            path.peek().phrases.remove(phrase);
+            recompute(path, key);
+        }
+
+        private void refresh(String key) {
+            Deque<Node> path = walk(key);
+            if (path != null) {
+                recompute(path, key);
+            }
+        }
+
+        // nodes from the root down to the key, deepest first
+        private Deque<Node> walk(String key) {
+            Deque<Node> path = new ArrayDeque<>();
+            Node node = root;
+            path.push(node);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.get(key.charAt(i));
+                if (node == null) {
+                    return null;
+                }
+                path.push(node);
+            }
+            return path;
+        }
+
+        // fix the best weight bottom up and prune nodes that no longer lead anywhere
+        private void recompute(Deque<Node> path, String key) {
+            int depth = key.length();
+            Node child = null;
+            for (Node node : path) {
+                if (child != null && child.isEmpty()) {
+                    node.children.remove(key.charAt(depth));
+                }
+                int best = 0;
+                for (Phrase phrase : node.phrases) {
+                    best = Math.max(best, phrase.weight);
+                }
+                for (Node next : node.children.values()) {
+                    best = Math.max(best, next.best);
+                }
+                node.best = best;
+                child = node;
+                depth--;
+            }
+        }
+
+        /*
+         * Best first search under the prefix node:
+         * a node is expanded only once its best weight is the highest left on the queue,
+         * so only the branches that can still make the top k are visited.
+         */
+        List<AutocompleteSuggestion> top(String prefix, int limit) {
+            Deque<Node> path = walk(prefix);
+            if (path == null) {
+                return List.of();
+            }
+
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(
+                    Comparator.comparingInt(Candidate::weight).reversed()
+                            .thenComparing(Candidate::isNode)
+                            .thenComparing(candidate -> candidate.phrase() == null ? "" : candidate.phrase().text));
+            queue.add(new Candidate(path.peek(), null, path.peek().best));
+
+            List<AutocompleteSuggestion> results = new ArrayList<>(limit);
+            Set<Phrase> seen = new HashSet<>();
+            while (!queue.isEmpty() && results.size() < limit) {
+                Candidate candidate = queue.poll();
+                if (candidate.phrase() != null) {
+                    // a phrase can sit under the prefix through more than one of its word starts
+                    if (seen.add(candidate.phrase())) {
+                        Phrase phrase = candidate.phrase();
+                        results.add(new AutocompleteSuggestion(phrase.text, phrase.type, phrase.weight));
+                    }
+                    continue;
+                }
+                for (Phrase phrase : candidate.node().phrases) {
+                    queue.add(new Candidate(null, phrase, phrase.weight));
+                }
+                for (Node child : candidate.node().children.values()) {
+                    queue.add(new Candidate(child, null, child.best));
+                }
+            }
+            return results;
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>(4);
+
+        private final List<Phrase> phrases = new ArrayList<>(1);
+
+        // highest phrase weight in this subtree
+        private int best;
+
+        boolean isEmpty() {
+            return children.isEmpty() && phrases.isEmpty();
+        }
+    }
+
+    private static final class Phrase {
+
+        private final String id;
+
+        private final String text;
+
+        private final AutocompleteSuggestion.Type type;
+
+        private final Set<String> keys;
+
+        private int weight;
+
+        Phrase(String id, String text, AutocompleteSuggestion.Type type, Set<String> keys) {
+            this.id = id;
+            this.text = text;
+            this.type = type;
+            this.keys = keys;
+        }
+    }
+
+    // either a subtree still to expand or a finished phrase, ranked by weight
+    private record Candidate(Node node, Phrase phrase, int weight) {
+
+        boolean isNode() {
+            return node != null;
+        }
+    }
+}
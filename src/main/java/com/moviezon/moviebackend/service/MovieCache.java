@@ -0,0 +1,67 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.utils.BoundedCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Read-through cache of MovieDto by movieId, invalidated by every movie write.
+ * A reader takes a stamp before loading the row and hands it to put,
+ * so a row read before a write cannot be cached after that write's invalidate.
+ * Dtos are copied in and out, callers are free to change what they get.
+ */
+@Component
+public class MovieCache {
+
+    // generations striped by movieId, a shared stripe only costs a skipped put
+    private static final int STRIPES = 1024;
+
+    private final BoundedCache<Integer, MovieDto> cache;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    public MovieCache(@Value("${movie.cache.max-size:5000}") int maxSize,
+                      @Value("${movie.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = new BoundedCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    public MovieDto get(Integer movieId) {
+        MovieDto cached = cache.get(movieId);
+        return cached == null ? null : cached.copy();
+    }
+
+    // take before reading the movie from the database
+    public long stamp(Integer movieId) {
+        return generations.get(stripe(movieId));
+    }
+
+    public void put(MovieDto movieDto, long stamp) {
+        int stripe = stripe(movieDto.getMovieId());
+        if (generations.get(stripe) != stamp) {
+            return;
+        }
+        cache.put(movieDto.getMovieId(), movieDto.copy());
+        // an invalidate that slipped in between the check and the put bumped the generation first
+        if (generations.get(stripe) != stamp) {
+            cache.invalidate(movieDto.getMovieId());
+        }
+    }
+
+    // bump before removing, so a concurrent put either sees the bump or is removed here
+    public void invalidate(Integer movieId) {
+        generations.incrementAndGet(stripe(movieId));
+        cache.invalidate(movieId);
+    }
+
+    public BoundedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private static int stripe(Integer movieId) {
+        return Math.floorMod(movieId.hashCode(), STRIPES);
+    }
+}
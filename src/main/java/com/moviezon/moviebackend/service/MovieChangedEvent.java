@@ -0,0 +1,20 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+
+// published after a movie is saved or deleted, movie is null for a delete,
+// version is the row version the event reflects, the last one saved for a delete
+public record MovieChangedEvent(Integer movieId, Integer version, MovieDto movie) {
+
+    public static MovieChangedEvent saved(MovieDto movie) {
+        return new MovieChangedEvent(movie.getMovieId(), movie.getVersion(), movie);
+    }
+
+    public static MovieChangedEvent deleted(Integer movieId, Integer version) {
+        return new MovieChangedEvent(movieId, version, null);
+    }
+
+    public boolean isDeleted() {
+        return movie == null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.moviezon.moviebackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviezon.moviebackend.dto.MovieCursorPageResponse;
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.exceptions.InvalidExportException;
+import com.moviezon.moviebackend.repository.MovieRepository;
+import com.moviezon.moviebackend.utils.CastList;
+import com.moviezon.moviebackend.utils.CsvWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * Streams the whole catalogue as NDJSON or CSV, optionally gzipped or zipped together with the posters.
+ * Movies are read in keyset chunks, each in its own short read-only transaction,
+ * so memory stays flat and no transaction stays open for the length of the download.
+ */
+@Service
+public class MovieExportService {
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private static final List<String> CSV_HEADER =
+            List.of("movieId", "title", "director", "studio", "releaseYear", "poster", "movieCast");
+
+    private final MovieService movieService;
+
+    private final MovieRepository movieRepository;
+
+    private final FileService fileService;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkSize;
+
+    @Value("${project.poster}")
+    String path;
+
+    public MovieExportService(MovieService movieService, MovieRepository movieRepository,
+                              FileService fileService, ObjectMapper objectMapper,
+                              @Value("${movie.export.chunk-size:500}") int chunkSize) {
+        this.movieService = movieService;
+        this.movieRepository = movieRepository;
+        this.fileService = fileService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public void export(Format format, boolean gzip, boolean withPosters, OutputStream out) throws IOException {
+        if (withPosters) {
+            //1. a zip holding the data file and then every poster, posters are already compressed
+            ZipOutputStream zip = new ZipOutputStream(out);
+            zip.putNextEntry(new ZipEntry("movies" + format.extension));
+            writeMovies(format, zip);
+            zip.closeEntry();
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            writePosters(zip);
+            zip.finish();
+            return;
+        }
+
+        if (gzip) {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, OUTPUT_BUFFER_SIZE);
+            writeMovies(format, gzipOut);
+            gzipOut.finish();
+            return;
+        }
+
+        writeMovies(format, out);
+    }
+
+    private void writeMovies(Format format, OutputStream out) throws IOException {
+        // the writer must not close the zip or gzip stream under it
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(StreamUtils.nonClosing(out), StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+        if (format == Format.CSV) {
+            CsvWriter.writeRecord(writer, CSV_HEADER);
+        }
+
+        String cursor = "";
+        do {
+            MovieCursorPageResponse chunk = movieService.getAllMoviesWithCursor(cursor, chunkSize,
+                    "movieId", "asc", false);
+            for (MovieDto movie : chunk.movieDtos()) {
+                if (format == Format.CSV) {
+                    CsvWriter.writeRecord(writer, toCsvRecord(movie));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(movie));
+                    writer.write('\n');
+                }
+            }
+            // push each chunk to the client instead of letting it pile up
+            writer.flush();
+            cursor = chunk.nextCursor();
+        } while (cursor != null);
+    }
+
+    private void writePosters(ZipOutputStream zip) throws IOException {
+        String after = "";
+        List<String> posters;
+        do {
+            posters = movieRepository.findPostersAfter(after, Limit.of(chunkSize));
+            for (String poster : posters) {
+                Path file;
+                try {
+                    file = fileService.getResourceFile(path, poster);
+                } catch (FileNotFoundException e) {
+                    // a row pointing at a missing file still exports, just without its poster
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry("posters/" + poster));
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+            if (!posters.isEmpty()) {
+                after = posters.get(posters.size() - 1);
+            }
+        } while (posters.size() == chunkSize);
+    }
+
+    private List<String> toCsvRecord(MovieDto movie) {
+        return List.of(
+                String.valueOf(movie.getMovieId()),
+                nullToEmpty(movie.getTitle()),
+                nullToEmpty(movie.getDirector()),
+                nullToEmpty(movie.getStudio()),
+                movie.getReleaseYear() == null ? "" : movie.getReleaseYear().toString(),
+                nullToEmpty(movie.getPoster()),
+                movie.getMovieCast() == null ? "" : CastList.join(movie.getMovieCast())
+        );
+    }
+
+    private String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    public enum Format {
+        NDJSON(".ndjson", "application/x-ndjson"),
+        CSV(".csv", "text/csv");
+
+        private final String extension;
+
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidExportException("Export format must be ndjson or csv");
+            }
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.dto.MovieFilterResponse;
+import com.moviezon.moviebackend.exceptions.InvalidFilterException;
+import com.moviezon.moviebackend.utils.TextTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Index for filtered listings.
+ * Movies get dense ordinals, and every release year, studio, director and cast member
+ * keeps the ordinals of its movies in a plain int list, so memory follows the number of
+ * (movie, value) pairs and not the highest movieId times the number of values.
+ * A filter unions the lists within a facet into one bitmap over ordinals and intersects
+ * across facets. Facet counts walk the matching movies' own values, so a selective
+ * filter costs what it matches, whatever the size of the cast dictionary.
+ * Kept in sync from MovieChangedEvent like the search index.
+ */
+@Slf4j
+@Service
+public class MovieFacetService {
+
+    public static final String YEAR_FACET = "releaseYear";
+    public static final String STUDIO_FACET = "studio";
+    public static final String DIRECTOR_FACET = "director";
+    public static final String CAST_FACET = "cast";
+
+    // compacting renumbers every movie, so only once deletes or late inserts add up to this share
+    private static final int COMPACT_DIVISOR = 4;
+
+    private static final int COMPACT_MIN = 1024;
+
+    private final MovieService movieService;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ordinal -> movie, null once the movie is gone
+    private final List<Doc> docs = new ArrayList<>();
+
+    private final Map<Integer, Integer> ordinals = new HashMap<>();
+
+    private final BitSet live = new BitSet();
+
+    // while true, ordinal order is movieId order and a page is read straight off the bitmap
+    private boolean inMovieIdOrder = true;
+
+    private int highestMovieId = Integer.MIN_VALUE;
+
+    // deleted ordinals plus movies that arrived after a higher movieId
+    private int disorder;
+
+    private final TreeMap<Integer, FacetValue> years = new TreeMap<>();
+
+    private final Map<String, FacetValue> studios = new HashMap<>();
+
+    private final Map<String, FacetValue> directors = new HashMap<>();
+
+    private final Map<String, FacetValue> cast = new HashMap<>();
+
+    private final MovieVersions versions = new MovieVersions();
+
+    public MovieFacetService(MovieService movieService) {
+        this.movieService = movieService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            versions.clear();
+            movieService.streamAllMovies(movie -> {
+                versions.loaded(movie);
+                addMovie(movie.copy(), null);
+            });
+            log.info("Facet index built with {} movies, {} studios, {} directors and {} cast members",
+                    ordinals.size(), studios.size(), directors.size(), cast.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // an older write that arrived late must not replace a newer one
+            if (!versions.accept(event)) {
+                return;
+            }
+            // an update keeps its ordinal, so the movieId order survives it
+            Integer ordinal = removeMovie(event.movieId());
+            if (!event.isDeleted()) {
+                addMovie(event.movie().copy(), ordinal);
+            } else if (ordinal != null) {
+                disorder++;
+            }
+            if (disorder > Math.max(COMPACT_MIN, ordinals.size() / COMPACT_DIVISOR)) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Studios and directors match any of the given values, cast members must all appear.
+     * Matches are ordered by movieId and paged in memory, the page comes from the index itself.
+     */
+    public MovieFilterResponse filter(Integer yearFrom, Integer yearTo,
+                                      List<String> studioNames, List<String> directorNames, List<String> castNames,
+                                      Integer pageNumber, Integer pageSize, String direction, int facetLimit) {
+        if (pageNumber < 0 || pageSize <= 0) {
+            throw new InvalidFilterException("pageNumber must be 0 or more and pageSize at least 1");
+        }
+        lock.readLock().lock();
+        try {
+            //1. intersect the facets that were asked for
+            BitSet matches = (BitSet) live.clone();
+            if (yearFrom != null || yearTo != null) {
+                int from = yearFrom == null ? Integer.MIN_VALUE : yearFrom;
+                int to = yearTo == null ? Integer.MAX_VALUE : yearTo;
+                matches.and(from > to ? new BitSet() : union(years.subMap(from, true, to, true).values()));
+            }
+            if (studioNames != null && !studioNames.isEmpty()) {
+                matches.and(union(lookup(studios, studioNames)));
+            }
+            if (directorNames != null && !directorNames.isEmpty()) {
+                matches.and(union(lookup(directors, directorNames)));
+            }
+            if (castNames != null) {
+                for (String castName : castNames) {
+                    FacetValue value = cast.get(key(castName));
+                    if (value == null) {
+                        matches.clear();
+                        break;
+                    }
+                    matches.and(union(List.of(value)));
+                }
+            }
+
+            //2. count facet values over the whole match, then cut the page
+            Map<String, List<MovieFilterResponse.FacetCount>> facets = countFacets(matches, facetLimit);
+
+            int totalElements = matches.cardinality();
+            int totalPages = (int) Math.ceil((double) totalElements / pageSize);
+            long skip = (long) pageNumber * pageSize;
+            boolean descending = direction.equalsIgnoreCase("desc");
+
+            List<MovieDto> movieDtos = new ArrayList<>((int) Math.min(pageSize, Math.max(0, totalElements - skip)));
+            for (int ordinal : page(matches, skip, pageSize, descending)) {
+                // copies, the indexed dtos stay as they were indexed whatever the caller does
+                movieDtos.add(docs.get(ordinal).movie().copy());
+            }
+
+            return new MovieFilterResponse(movieDtos, pageNumber, pageSize, totalElements, totalPages,
+                    pageNumber + 1 >= totalPages, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ordinals of one page in movieId order, sorting only while late inserts are waiting for a compact
+    private int[] page(BitSet matches, long skip, int pageSize, boolean descending) {
+        int[] matched;
+        if (inMovieIdOrder) {
+            matched = matches.stream().toArray();
+        } else {
+            matched = matches.stream().boxed()
+                    .sorted(Comparator.comparingInt(ordinal -> docs.get(ordinal).movie().getMovieId()))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        if (skip >= matched.length) {
+            return new int[0];
+        }
+        int count = (int) Math.min(pageSize, matched.length - skip);
+        int[] page = new int[count];
+        for (int i = 0; i < count; i++) {
+            int position = (int) skip + i;
+            page[i] = matched[descending ? matched.length - 1 - position : position];
+        }
+        return page;
+    }
+
+    /*
+     * One pass over the matching movies, adding one to each value they carry.
+     * Only values that occur in the match are ever touched.
+     * Only the top facetLimit values per facet are kept from the counts.
+     */
+    private Map<String, List<MovieFilterResponse.FacetCount>> countFacets(BitSet matches, int facetLimit) {
+        Map<FacetValue, int[]> yearCounts = new HashMap<>();
+        Map<FacetValue, int[]> studioCounts = new HashMap<>();
+        Map<FacetValue, int[]> directorCounts = new HashMap<>();
+        Map<FacetValue, int[]> castCounts = new HashMap<>();
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+            Doc doc = docs.get(ordinal);
+            increment(yearCounts, doc.year());
+            increment(studioCounts, doc.studio());
+            increment(directorCounts, doc.director());
+            for (FacetValue value : doc.cast()) {
+                increment(castCounts, value);
+            }
+        }
+
+        Map<String, List<MovieFilterResponse.FacetCount>> facets = new LinkedHashMap<>();
+        facets.put(YEAR_FACET, top(yearCounts, facetLimit));
+        facets.put(STUDIO_FACET, top(studioCounts, facetLimit));
+        facets.put(DIRECTOR_FACET, top(directorCounts, facetLimit));
+        facets.put(CAST_FACET, top(castCounts, facetLimit));
+        return facets;
+    }
+
+    private void increment(Map<FacetValue, int[]> counts, FacetValue value) {
+        if (value != null) {
+            counts.computeIfAbsent(value, v -> new int[1])[0]++;
+        }
+    }
+
+    // counted under the display name, so "warner" and "Warner" end up in one bucket
+    private List<MovieFilterResponse.FacetCount> top(Map<FacetValue, int[]> counts, int limit) {
+        TopCounts top = new TopCounts(limit);
+        for (Map.Entry<FacetValue, int[]> entry : counts.entrySet()) {
+            top.offer(entry.getKey().name(), entry.getValue()[0]);
+        }
+        return top.sorted();
+    }
+
+    private List<FacetValue> lookup(Map<String, FacetValue> dictionary, List<String> names) {
+        List<FacetValue> values = new ArrayList<>(names.size());
+        for (String name : names) {
+            FacetValue value = dictionary.get(key(name));
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private BitSet union(Collection<FacetValue> values) {
+        BitSet union = new BitSet(docs.size());
+        for (FacetValue value : values) {
+            value.movies().addTo(union);
+        }
+        return union;
+    }
+
+    // caller holds the write lock, a null ordinal appends the movie
+    private void addMovie(MovieDto movie, Integer reusedOrdinal) {
+        int movieId = movie.getMovieId();
+        int ordinal = reusedOrdinal != null ? reusedOrdinal : docs.size();
+        // movieIds are auto increment, so a new movie arriving behind a higher one is the rare case
+        if (reusedOrdinal == null && movieId < highestMovieId) {
+            inMovieIdOrder = false;
+            disorder++;
+        }
+        highestMovieId = Math.max(highestMovieId, movieId);
+
+        FacetValue year = null;
+        if (movie.getReleaseYear() != null) {
+            String yearKey = movie.getReleaseYear().toString();
+            year = years.computeIfAbsent(movie.getReleaseYear(), releaseYear -> new FacetValue(yearKey, yearKey));
+            year.movies().add(ordinal);
+        }
+        FacetValue studio = add(studios, movie.getStudio(), ordinal);
+        FacetValue director = add(directors, movie.getDirector(), ordinal);
+        List<FacetValue> castValues = new ArrayList<>();
+        if (movie.getMovieCast() != null) {
+            for (String castMember : movie.getMovieCast()) {
+                FacetValue value = valueOf(cast, castMember);
+                // two spellings of one name count once
+                if (value != null && !castValues.contains(value)) {
+                    value.movies().add(ordinal);
+                    castValues.add(value);
+                }
+            }
+        }
+
+        Doc doc = new Doc(movie, year, studio, director, castValues);
+        if (reusedOrdinal != null) {
+            docs.set(ordinal, doc);
+        } else {
+            docs.add(doc);
+        }
+        ordinals.put(movieId, ordinal);
+        live.set(ordinal);
+    }
+
+    // caller holds the write lock, returns the ordinal that was freed
+    private Integer removeMovie(Integer movieId) {
+        Integer ordinal = ordinals.remove(movieId);
+        if (ordinal == null) {
+            return null;
+        }
+        Doc doc = docs.set(ordinal, null);
+        live.clear(ordinal);
+
+        if (doc.year() != null) {
+            doc.year().movies().remove(ordinal);
+            if (doc.year().movies().isEmpty()) {
+                years.remove(doc.movie().getReleaseYear());
+            }
+        }
+        remove(studios, doc.studio(), ordinal);
+        remove(directors, doc.director(), ordinal);
+        for (FacetValue value : doc.cast()) {
+            remove(cast, value, ordinal);
+        }
+        return ordinal;
+    }
+
+    // renumber the live movies by movieId, which drops the holes and restores the order
+    private void compact() {
+        List<MovieDto> remaining = new ArrayList<>(ordinals.size());
+        for (Doc doc : docs) {
+            if (doc != null) {
+                remaining.add(doc.movie());
+            }
+        }
+        remaining.sort(Comparator.comparing(MovieDto::getMovieId));
+        clear();
+        remaining.forEach(movie -> addMovie(movie, null));
+    }
+
+    private void clear() {
+        docs.clear();
+        ordinals.clear();
+        live.clear();
+        inMovieIdOrder = true;
+        highestMovieId = Integer.MIN_VALUE;
+        disorder = 0;
+        years.clear();
+        studios.clear();
+        directors.clear();
+        cast.clear();
+    }
+
+    private FacetValue add(Map<String, FacetValue> dictionary, String text, int ordinal) {
+        FacetValue value = valueOf(dictionary, text);
+        if (value != null) {
+            value.movies().add(ordinal);
+        }
+        return value;
+    }
+
+    // null for blank text
+    private FacetValue valueOf(Map<String, FacetValue> dictionary, String text) {
+        String key = key(text);
+        if (key.isEmpty()) {
+            return null;
+        }
+        return dictionary.computeIfAbsent(key, k -> new FacetValue(k, text.strip()));
+    }
+
+    private void remove(Map<String, FacetValue> dictionary, FacetValue value, int ordinal) {
+        if (value == null) {
+            return;
+        }
+        value.movies().remove(ordinal);
+        if (value.movies().isEmpty()) {
+            dictionary.remove(value.key());
+        }
+    }
+
+    private String key(String text) {
+        return text == null ? "" : TextTokenizer.normalize(text).strip();
+    }
+
+    // the indexed movie and the values it was counted under
+    private record Doc(MovieDto movie, FacetValue year, FacetValue studio, FacetValue director,
+                       List<FacetValue> cast) {
+    }
+
+    // display name as first seen, and the ordinals of the movies carrying it
+    private record FacetValue(String key, String name, Postings movies) {
+
+        FacetValue(String key, String name) {
+            this(key, name, new Postings());
+        }
+    }
+
+    /*
+     * Unordered growable int array, 4 bytes per movie.
+     * Removal scans for the ordinal and moves the last one into its slot.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[2];
+
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        void remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    ordinals[i] = ordinals[--size];
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void addTo(BitSet bitmap) {
+            for (int i = 0; i < size; i++) {
+                bitmap.set(ordinals[i]);
+            }
+        }
+    }
+
+    // bounded min-heap of the highest counts, ties go to the smaller name
+    private static final class TopCounts {
+
+        private static final Comparator<MovieFilterResponse.FacetCount> ORDER =
+                Comparator.comparingInt(MovieFilterResponse.FacetCount::count).reversed()
+                        .thenComparing(MovieFilterResponse.FacetCount::value);
+
+        private final int limit;
+
+        // weakest kept count on top
+        private final PriorityQueue<MovieFilterResponse.FacetCount> heap;
+
+        private TopCounts(int limit) {
+            this.limit = Math.max(0, limit);
+            this.heap = new PriorityQueue<>(this.limit + 1, ORDER.reversed());
+        }
+
+        private void offer(String value, int count) {
+            if (count == 0 || limit == 0) {
+                return;
+            }
+            heap.add(new MovieFilterResponse.FacetCount(value, count));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        private List<MovieFilterResponse.FacetCount> sorted() {
+            List<MovieFilterResponse.FacetCount> counts = new ArrayList<>(heap);
+            counts.sort(ORDER);
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package com.moviezon.moviebackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviezon.moviebackend.dto.ImportJobStatus;
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.entities.Movie;
+import com.moviezon.moviebackend.exceptions.FileExistsException;
+import com.moviezon.moviebackend.exceptions.ImportCapacityExceededException;
+import com.moviezon.moviebackend.exceptions.ImportJobNotFoundException;
+import com.moviezon.moviebackend.exceptions.InvalidImportException;
+import com.moviezon.moviebackend.repository.MovieJdbcRepository;
+import com.moviezon.moviebackend.utils.BoundedCache;
+import com.moviezon.moviebackend.utils.CastList;
+import com.moviezon.moviebackend.utils.CsvReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/*
+ * Bulk catalogue import from an NDJSON or CSV upload, with an optional zip of posters.
+ * The upload is parked in a temp file and read row by row on a background job,
+ * rows are inserted in JDBC batches and progress is kept per job for polling.
+ *
+ * NDJSON: one MovieDto per line.
+ * CSV: a header row naming title, director, studio, releaseYear, poster and movieCast,
+ * with cast members separated by '|' (see CastList for escaping).
+ */
+@Slf4j
+@Service
+public class MovieImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final MovieJdbcRepository movieJdbcRepository;
+
+    private final FileService fileService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int batchSize;
+
+    // finished jobs stay visible for a day
+    private final BoundedCache<String, ImportJob> jobs = new BoundedCache<>(100, Duration.ofDays(1));
+
+    @Value("${project.poster}")
+    String path;
+
+    @Value("${base.url}")
+    String baseUrl;
+
+    public MovieImportService(MovieJdbcRepository movieJdbcRepository, FileService fileService,
+                              ObjectMapper objectMapper, Validator validator,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${movie.import.batch-size:1000}") int batchSize,
+                              @Value("${movie.import.threads:1}") int threads,
+                              @Value("${movie.import.queue-size:4}") int queueSize) {
+        this.movieJdbcRepository = movieJdbcRepository;
+        this.fileService = fileService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+        // imports are long and write heavy, a couple at a time is plenty
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "movie-import");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public ImportJobStatus startImport(MultipartFile file, MultipartFile posters) throws IOException {
+        //1. decide the format up front so a wrong upload fails the request, not the job
+        Format format = Format.of(file);
+
+        //2. park the uploads, the multipart temp files are gone once the request ends
+        Path rows = Files.createTempFile("movie-import", format.extension);
+        file.transferTo(rows);
+        Path posterZip = null;
+        if (posters != null && !posters.isEmpty()) {
+            posterZip = Files.createTempFile("movie-import", ".zip");
+            posters.transferTo(posterZip);
+        }
+
+        //3. queue the job
+        ImportJob job = new ImportJob(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        Path posterFile = posterZip;
+        try {
+            executor.execute(() -> run(job, format, rows, posterFile));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            Files.deleteIfExists(rows);
+            if (posterFile != null) {
+                Files.deleteIfExists(posterFile);
+            }
+            throw new ImportCapacityExceededException("Too many imports in progress, please retry later");
+        }
+        return job.status();
+    }
+
+    public ImportJobStatus getImportStatus(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ImportJobNotFoundException("Import job not found with id: " + jobId);
+        }
+        return job.status();
+    }
+
+    private void run(ImportJob job, Format format, Path rows, Path posterZip) {
+        job.state = ImportJobStatus.State.RUNNING;
+        JobPosters posters = new JobPosters();
+        try {
+            //1. store the posters first, rows refer to them by file name
+            if (posterZip != null) {
+                storePosters(posterZip, posters);
+            }
+
+            //2. read rows and insert them batch by batch
+            List<Movie> batch = new ArrayList<>(batchSize);
+            try (BufferedReader reader = Files.newBufferedReader(rows, StandardCharsets.UTF_8)) {
+                RowReader rowReader = format == Format.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+                long rowNumber = 0;
+                MovieDto row;
+                while (true) {
+                    rowNumber++;
+                    try {
+                        row = rowReader.next();
+                    } catch (IOException e) {
+                        job.reject(rowNumber, e.getMessage());
+                        continue;
+                    }
+                    if (row == null) {
+                        break;
+                    }
+                    Movie movie = toMovie(job, rowNumber, row, posters);
+                    if (movie != null) {
+                        batch.add(movie);
+                    }
+                    if (batch.size() == batchSize) {
+                        flush(job, batch);
+                    }
+                }
+                flush(job, batch);
+            }
+            job.state = ImportJobStatus.State.COMPLETED;
+        } catch (Exception e) {
+            log.warn("Import {} failed", job.id, e);
+            job.addError("Import aborted: " + e.getMessage());
+            job.state = ImportJobStatus.State.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+            releasePosters(posters);
+            deleteQuietly(rows);
+            if (posterZip != null) {
+                deleteQuietly(posterZip);
+            }
+        }
+        log.info("Import {} finished: {} imported, {} failed", job.id, job.imported.get(), job.failed.get());
+    }
+
+    private void storePosters(Path posterZip, JobPosters posters) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(posterZip))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = Paths.get(entry.getName()).getFileName().toString();
+                try (InputStream in = StreamUtils.nonClosing(zip)) {
+                    String storedName = fileService.storeFile(path, name, in);
+                    posters.pinned.add(storedName);
+                    posters.stored.put(name, storedName);
+                } catch (FileExistsException e) {
+                    // the name belongs to a file already on disk, possibly another movie's poster
+                    posters.clashing.add(name);
+                }
+            }
+        }
+    }
+
+    // every row is written or rejected, posters no row ended up pointing at are removed again
+    private void releasePosters(JobPosters posters) {
+        posters.pinned.forEach(fileService::unpin);
+        for (String storedName : new LinkedHashSet<>(posters.pinned)) {
+            try {
+                fileService.deleteFileIfUnreferenced(path, storedName,
+                        () -> movieJdbcRepository.countByPoster(storedName) > 0);
+            } catch (IOException e) {
+                log.warn("Could not release imported poster {}", storedName, e);
+            }
+        }
+    }
+
+    private Movie toMovie(ImportJob job, long rowNumber, MovieDto row, JobPosters posters) {
+        if (row.getPoster() != null && posters.clashing.contains(row.getPoster())) {
+            job.reject(rowNumber, "Poster " + row.getPoster() + " already exists, rename it in the zip");
+            return null;
+        }
+        String poster = row.getPoster() == null ? null : posters.stored.getOrDefault(row.getPoster(), row.getPoster());
+        Movie movie = new Movie(
+                null,
+                row.getTitle(),
+                row.getDirector(),
+                row.getStudio(),
+                row.getMovieCast(),
+                row.getReleaseYear(),
+                poster
+        );
+
+        // same rules the entity enforces on a single add
+        Set<ConstraintViolation<Movie>> violations = validator.validate(movie);
+        if (!violations.isEmpty()) {
+            job.reject(rowNumber, violations.iterator().next().getMessage());
+            return null;
+        }
+        if (movie.getReleaseYear() == null) {
+            job.reject(rowNumber, "Provide movie's release year");
+            return null;
+        }
+        return movie;
+    }
+
+    private void flush(ImportJob job, List<Movie> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            movieJdbcRepository.insertAll(batch);
+            job.imported.addAndGet(batch.size());
+            for (Movie movie : batch) {
+                eventPublisher.publishEvent(MovieChangedEvent.saved(toMovieDto(movie)));
+            }
+        } catch (DataAccessException e) {
+            // the batch rolled back as a whole
+            job.failed.addAndGet(batch.size());
+            job.addError("Batch of " + batch.size() + " rows rejected: " + e.getMostSpecificCause().getMessage());
+        }
+        job.processed.addAndGet(batch.size());
+        batch.clear();
+    }
+
+    private MovieDto toMovieDto(Movie movie) {
+        MovieDto movieDto = new MovieDto(
+                movie.getMovieId(),
+                movie.getTitle(),
+                movie.getDirector(),
+                movie.getStudio(),
+                movie.getMovieCast(),
+                movie.getReleaseYear(),
+                movie.getPoster(),
+                baseUrl + "/file/" + movie.getPoster()
+        );
+        // rows are inserted with the initial version
+        movieDto.setVersion(0);
+        return movieDto;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}", file, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private enum Format {
+        NDJSON(".ndjson"),
+        CSV(".csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        // by file extension, then by content type
+        static Format of(MultipartFile file) {
+            String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+            String contentType = file.getContentType() == null ? "" : file.getContentType().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv") || contentType.startsWith("text/csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")
+                    || contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/jsonl")) {
+                return NDJSON;
+            }
+            throw new InvalidImportException("Import file must be .ndjson, .jsonl or .csv");
+        }
+    }
+
+    private interface RowReader {
+        // next row, or null at the end of the input
+        MovieDto next() throws IOException;
+    }
+
+    private class NdjsonRowReader implements RowReader {
+
+        private final BufferedReader reader;
+
+        NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public MovieDto next() throws IOException {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            return line == null ? null : objectMapper.readValue(line, MovieDto.class);
+        }
+    }
+
+    private static class CsvRowReader implements RowReader {
+
+        private final CsvReader reader;
+
+        private Map<String, Integer> columns;
+
+        CsvRowReader(BufferedReader reader) {
+            this.reader = new CsvReader(reader);
+        }
+
+        @Override
+        public MovieDto next() throws IOException {
+            if (columns == null) {
+                readHeader();
+            }
+            List<String> record = reader.readRecord();
+            while (record != null && record.size() == 1 && record.get(0).isBlank()) {
+                record = reader.readRecord();
+            }
+            if (record == null) {
+                return null;
+            }
+
+            MovieDto row = new MovieDto();
+            row.setTitle(field(record, "title"));
+            row.setDirector(field(record, "director"));
+            row.setStudio(field(record, "studio"));
+            row.setPoster(field(record, "poster"));
+            String releaseYear = field(record, "releaseyear");
+            try {
+                row.setReleaseYear(releaseYear == null || releaseYear.isBlank() ? null : Integer.valueOf(releaseYear.strip()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid release year: " + releaseYear);
+            }
+            String cast = field(record, "moviecast");
+            if (cast != null && !cast.isBlank()) {
+                row.setMovieCast(CastList.split(cast));
+            }
+            return row;
+        }
+
+        // header names are matched loosely, release_year and ReleaseYear both work
+        private void readHeader() {
+            List<String> header;
+            try {
+                header = reader.readRecord();
+            } catch (IOException e) {
+                // rows cannot be mapped without it, so the import stops instead of reading a row as the header
+                throw new InvalidImportException("Unreadable CSV header: " + e.getMessage());
+            }
+            columns = new HashMap<>();
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i).strip().replace("_", "").toLowerCase(Locale.ROOT);
+                columns.put(name.equals("cast") ? "moviecast" : name, i);
+            }
+        }
+
+        private String field(List<String> record, String column) {
+            Integer index = columns.get(column);
+            return index == null || index >= record.size() ? null : record.get(index);
+        }
+    }
+
+    // used by the import thread only
+    private static class JobPosters {
+
+        // zip entry name -> stored file name, they differ when posters are content addressed
+        private final Map<String, String> stored = new HashMap<>();
+
+        // zip entries whose name was already taken on disk
+        private final Set<String> clashing = new HashSet<>();
+
+        // one entry per store, each holds a pin
+        private final List<String> pinned = new ArrayList<>();
+    }
+
+    // written by the import thread only, read by status requests
+    private static class ImportJob {
+
+        private final String id;
+
+        private final Instant startedAt = Instant.now();
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong imported = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private final List<String> errors = new CopyOnWriteArrayList<>();
+
+        private volatile ImportJobStatus.State state = ImportJobStatus.State.QUEUED;
+
+        private volatile Instant finishedAt;
+
+        ImportJob(String id) {
+            this.id = id;
+        }
+
+        void reject(long rowNumber, String reason) {
+            processed.incrementAndGet();
+            failed.incrementAndGet();
+            addError("Row " + rowNumber + ": " + reason);
+        }
+
+        void addError(String error) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        ImportJobStatus status() {
+            return new ImportJobStatus(id, state, processed.get(), imported.get(), failed.get(),
+                    List.copyOf(errors), startedAt, finishedAt);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.utils.TextTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * In-memory inverted index over title, director, studio and cast, ranked with BM25.
+ * Built from the database once at startup and then kept in sync from MovieChangedEvent,
+ * so queries never touch MySQL.
+ */
+@Slf4j
+@Service
+public class MovieSearchService {
+
+    // BM25 tuning, the usual defaults
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // a title hit counts more than a cast hit, which counts more than director or studio
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float CAST_WEIGHT = 2.0f;
+    private static final float DIRECTOR_WEIGHT = 1.5f;
+    private static final float STUDIO_WEIGHT = 1.0f;
+
+    private final MovieService movieService;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    // term -> movieId -> weighted term frequency
+    private final Map<String, Map<Integer, Float>> postings = new HashMap<>();
+
+    private double totalLength;
+
+    private final MovieVersions versions = new MovieVersions();
+
+    public MovieSearchService(MovieService movieService) {
+        this.movieService = movieService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            totalLength = 0;
+            versions.clear();
+            movieService.streamAllMovies(movie -> {
+                versions.loaded(movie);
+                addDocument(movie);
+            });
+            log.info("Search index built with {} movies and {} terms", documents.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // an older write that arrived late must not replace a newer one
+            if (!versions.accept(event)) {
+                return;
+            }
+            removeDocument(event.movieId());
+            if (!event.isDeleted()) {
+                addDocument(event.movie());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<MovieDto> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            double averageLength = documentCount == 0 ? 0 : totalLength / documentCount;
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Integer, Float> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<Integer, Float> entry : posting.entrySet()) {
+                    double length = documents.get(entry.getKey()).length();
+                    double tf = entry.getValue();
+                    double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                    scores.merge(entry.getKey(), score, Double::sum);
+                }
+            }
+
+            // keep only the best `limit` hits instead of sorting every match
+            PriorityQueue<Map.Entry<Integer, Double>> best =
+                    new PriorityQueue<>(Comparator.comparingDouble(Map.Entry::getValue));
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                best.offer(entry);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            // copies, the indexed dtos stay as they were indexed whatever the caller does
+            List<MovieDto> results = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                results.add(documents.get(best.poll().getKey()).movie().copy());
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // caller holds the write lock
+    private void addDocument(MovieDto movie) {
+        Map<String, Float> termFrequencies = new HashMap<>();
+        addField(termFrequencies, movie.getTitle(), TITLE_WEIGHT);
+        addField(termFrequencies, movie.getDirector(), DIRECTOR_WEIGHT);
+        addField(termFrequencies, movie.getStudio(), STUDIO_WEIGHT);
+        if (movie.getMovieCast() != null) {
+            for (String castMember : movie.getMovieCast()) {
+                addField(termFrequencies, castMember, CAST_WEIGHT);
+            }
+        }
+
+        float length = 0;
+        for (Map.Entry<String, Float> entry : termFrequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(movie.getMovieId(), entry.getValue());
+            length += entry.getValue();
+        }
+        documents.put(movie.getMovieId(), new Document(movie.copy(), length, new HashSet<>(termFrequencies.keySet())));
+        totalLength += length;
+    }
+
+    // caller holds the write lock
+    private void removeDocument(Integer movieId) {
+        Document document = documents.remove(movieId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms()) {
+            Map<Integer, Float> posting = postings.get(term);
+            posting.remove(movieId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= document.length();
+    }
+
+    private void addField(Map<String, Float> termFrequencies, String text, float weight) {
+        for (String token : TextTokenizer.tokenize(text)) {
+            termFrequencies.merge(token, weight, Float::sum);
+        }
+    }
+
+    private record Document(MovieDto movie, float length, Set<String> terms) {
+    }
+}
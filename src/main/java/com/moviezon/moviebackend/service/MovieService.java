@@ -1,7 +1,10 @@
 package com.moviezon.moviebackend.service;
 
+import com.moviezon.moviebackend.dto.MovieBatchResponse;
+import com.moviezon.moviebackend.dto.MovieCursorPageResponse;
 import com.moviezon.moviebackend.dto.MovieDto;
 import com.moviezon.moviebackend.dto.MoviePageResponse;
+import com.moviezon.moviebackend.utils.BoundedCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -9,6 +12,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MovieService {
 
@@ -16,16 +20,35 @@ public interface MovieService {
 
     MovieDto getMovieById(Integer movieId);
 
+    MovieBatchResponse getMoviesByIds(List<Integer> movieIds);
+
     //Pagination
     List<MovieDto> getAllMovies();
 
-    MovieDto updateMovieById(Integer movieId, MovieDto movieDto, MultipartFile file) throws IOException;
+    void streamAllMovies(Consumer<MovieDto> consumer);
+
+    // expectedVersion comes from If-Match, null skips the check
+    MovieDto updateMovieById(Integer movieId, MovieDto movieDto, MultipartFile file,
+                             Integer expectedVersion) throws IOException;
+
+    // only the non null fields of the dto are applied, file may be null
+    MovieDto patchMovieById(Integer movieId, MovieDto patch, MultipartFile file,
+                            Integer expectedVersion) throws IOException;
 
-    String deleteMovieById(Integer movieId) throws IOException;
+    String deleteMovieById(Integer movieId, Integer expectedVersion) throws IOException;
 
     MoviePageResponse getAllMoviesWithPagination(Integer pageNumber, Integer pageSize);
 
     MoviePageResponse getAllMoviesWithPaginationAndSorting(Integer pageNumber, Integer pageSize,
                                                            String sortBy, String direction);
 
+    // sparse fieldset, e.g. fields="title,poster", movieId and version are always included
+    MoviePageResponse getAllMoviesWithFields(Integer pageNumber, Integer pageSize,
+                                             String sortBy, String direction, String fields);
+
+    MovieCursorPageResponse getAllMoviesWithCursor(String cursor, Integer pageSize,
+                                                   String sortBy, String direction, boolean withCount);
+
+    BoundedCache.Stats getMovieCacheStats();
+
 }
@@ -1,52 +1,99 @@
 package com.moviezon.moviebackend.service;
 
+import com.moviezon.moviebackend.dto.MovieBatchResponse;
+import com.moviezon.moviebackend.dto.MovieCursorPageResponse;
 import com.moviezon.moviebackend.dto.MovieDto;
 import com.moviezon.moviebackend.dto.MoviePageResponse;
 import com.moviezon.moviebackend.entities.Movie;
-import com.moviezon.moviebackend.exceptions.FileExistsException;
+import com.moviezon.moviebackend.exceptions.BatchSizeExceededException;
+import com.moviezon.moviebackend.exceptions.InvalidCursorException;
+import com.moviezon.moviebackend.exceptions.InvalidFieldsException;
+import com.moviezon.moviebackend.exceptions.InvalidMovieException;
 import com.moviezon.moviebackend.exceptions.MovieNotFoundException;
+import com.moviezon.moviebackend.exceptions.PreconditionFailedException;
 import com.moviezon.moviebackend.repository.MovieRepository;
+import com.moviezon.moviebackend.utils.BoundedCache;
+import com.moviezon.moviebackend.utils.MovieCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
+@Slf4j
 @Service
 public class MovieServiceImpl implements MovieService {
 
+    // matches the @BatchSize of Movie.movieCast
+    private static final int STREAM_CHUNK_SIZE = 100;
+
+    private static final Set<String> PROJECTABLE_FIELDS = Set.of("movieId", "title", "director", "studio",
+            "movieCast", "releaseYear", "poster", "posterUrl", "version");
+
+
     private final FileService fileService;
 
     private final MovieRepository movieRepository;
 
+    private final EntityManager entityManager;
+
+    private final MovieCache movieCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Validator validator;
+
     @Value("${project.poster}")
     String path;
 
     @Value("${base.url}")
     String baseUrl;
 
-    public MovieServiceImpl(FileService fileService, MovieRepository movieRepository) {
+    @Value("${movie.batch.max-ids:200}")
+    int maxBatchSize;
+
+    public MovieServiceImpl(FileService fileService, MovieRepository movieRepository,
+                            EntityManager entityManager, MovieCache movieCache,
+                            ApplicationEventPublisher eventPublisher, Validator validator) {
         this.fileService = fileService;
         this.movieRepository = movieRepository;
+        this.entityManager = entityManager;
+        this.movieCache = movieCache;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
     }
 
     @Override
     public MovieDto addMovie(MovieDto movieDto, MultipartFile file) throws IOException {
-        if(Files.exists(Paths.get(path + File.separator + file.getOriginalFilename()))) {
-            throw new FileExistsException("File Already Exists! Please give another file");
-        }
-
+        // an existing name is rejected by the flat store, the content addressed store dedupes it
         String uploadedFileName = fileService.uploadFile(path, file);
 
         movieDto.setPoster(uploadedFileName);
@@ -61,7 +108,17 @@ public class MovieServiceImpl implements MovieService {
                 movieDto.getPoster()
         );
 
-        Movie savedMovie = movieRepository.save(movie);
+        Movie savedMovie;
+        try {
+            savedMovie = movieRepository.save(movie);
+        } catch (RuntimeException e) {
+            // nothing points at the upload yet, unless another movie shares it
+            fileService.unpin(uploadedFileName);
+            releasePoster(uploadedFileName);
+            throw e;
+        }
+        fileService.unpin(uploadedFileName);
+        movieCache.invalidate(savedMovie.getMovieId());
 
         String posterUrl = baseUrl + "/file/" + uploadedFileName;
 
@@ -76,24 +133,82 @@ public class MovieServiceImpl implements MovieService {
 //            posterUrl
 //        );
         //        System.out.println("Poster URL: " + posterUrl);
-        return convertToMovieDto(savedMovie, posterUrl);
+        MovieDto response = convertToMovieDto(savedMovie, posterUrl);
+        eventPublisher.publishEvent(MovieChangedEvent.saved(response));
+        return response;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public MovieDto getMovieById(Integer movieId) {
+        // 0. serve from the cache when we can
+        MovieDto cached = movieCache.get(movieId);
+        if(cached != null) {
+            return cached;
+        }
+
         // 1 . verify in database, then fetch data of given id
+        long stamp = movieCache.stamp(movieId);
         Movie movie = movieRepository.findById(movieId).
                 orElseThrow(() -> new MovieNotFoundException("Movie Not Found with id: " + movieId));
 
         //2. Generate Poster url
         String posterUrl = baseUrl + "/file/" + movie.getPoster();
 
-        //3. Mapping movie to MovieDto object and return it
-        return convertToMovieDto(movie, posterUrl);
+        //3. Mapping movie to MovieDto object, cache and return it
+        MovieDto response = convertToMovieDto(movie, posterUrl);
+        movieCache.put(response, stamp);
+        return response;
 
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public MovieBatchResponse getMoviesByIds(List<Integer> movieIds) {
+        //1. duplicates are answered once, in the order first asked
+        Set<Integer> requestedIds = new LinkedHashSet<>(movieIds);
+        if(requestedIds.size() > maxBatchSize) {
+            throw new BatchSizeExceededException("At most " + maxBatchSize + " ids per batch");
+        }
+
+        //2. take what the cache has
+        Map<Integer, MovieDto> found = new HashMap<>();
+        Map<Integer, Long> misses = new HashMap<>();
+        for(Integer movieId : requestedIds) {
+            MovieDto cached = movieCache.get(movieId);
+            if(cached != null) {
+                found.put(movieId, cached);
+            } else {
+                misses.put(movieId, movieCache.stamp(movieId));
+            }
+        }
+
+        //3. one IN query with the casts joined for the rest, and cache them
+        if(!misses.isEmpty()) {
+            for(Movie movie : movieRepository.findByMovieIdIn(new ArrayList<>(misses.keySet()))) {
+                String posterUrl = baseUrl + "/file/" + movie.getPoster();
+                MovieDto movieDto = convertToMovieDto(movie, posterUrl);
+                movieCache.put(movieDto, misses.get(movie.getMovieId()));
+                found.put(movie.getMovieId(), movieDto);
+            }
+        }
+
+        //4. back in request order, whatever is left is missing
+        List<MovieDto> movieDtoList = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for(Integer movieId : requestedIds) {
+            MovieDto movieDto = found.get(movieId);
+            if(movieDto != null) {
+                movieDtoList.add(movieDto);
+            } else {
+                missingIds.add(movieId);
+            }
+        }
+        return new MovieBatchResponse(movieDtoList, missingIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<MovieDto> getAllMovies() {
         //1. Fetch all the data(movies) from db in a list
         List<Movie> movieList = movieRepository.findAll();
@@ -123,20 +238,50 @@ public class MovieServiceImpl implements MovieService {
     }
 
     @Override
-    public MovieDto updateMovieById(Integer movieId, MovieDto movieDto, MultipartFile file) throws IOException {
-        //1. check if movieId exists
+    @Transactional(readOnly = true)
+    public void streamAllMovies(Consumer<MovieDto> consumer) {
+        //1. walk the table with a forward-only cursor instead of loading it into a list
+        try (Stream<Movie> movies = movieRepository.streamAllBy()) {
+            List<Movie> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            movies.forEach(movie -> {
+                chunk.add(movie);
+                if(chunk.size() == STREAM_CHUNK_SIZE) {
+                    writeChunk(chunk, consumer);
+                }
+            });
+            writeChunk(chunk, consumer);
+        }
+    }
+
+    private void writeChunk(List<Movie> chunk, Consumer<MovieDto> consumer) {
+        //2. map and hand over each row, the first cast access batch loads the casts of the whole chunk
+        for(Movie movie : chunk) {
+            String posterUrl = baseUrl + "/file/" + movie.getPoster();
+            consumer.accept(convertToMovieDto(movie, posterUrl));
+        }
+
+        //3. detach so the persistence context does not grow with the table
+        chunk.forEach(entityManager::detach);
+        chunk.clear();
+    }
+
+    @Override
+    public MovieDto updateMovieById(Integer movieId, MovieDto movieDto, MultipartFile file,
+                                    Integer expectedVersion) throws IOException {
+        //1. check if movieId exists, and that the client edited the current version
         Movie existingMovie = movieRepository.findById(movieId).
                 orElseThrow(() -> new MovieNotFoundException("Movie Not Found with id: " + movieId));
+        checkVersion(existingMovie, expectedVersion);
 
         //2. if file from user is null, do nothing
-        // Else delete the previous file asstd with movie obj and upload new file
+        // Else upload the new file, the previous one is released once the save went through.
+        // A poster sent under its current name is written aside and swapped in after the save
 
-        String fileName = existingMovie.getPoster();
+        String oldPoster = existingMovie.getPoster();
+        Path staged = stageReplacement(file, oldPoster);
+        MultipartFile upload = staged == null ? file : null;
+        String fileName = upload == null ? oldPoster : fileService.uploadFile(path, upload);
 
-        if(file != null){
-            Files.deleteIfExists(Paths.get(path + File.separator + fileName));
-            fileName = fileService.uploadFile(path, file);
-        }
         //3. set movieDto's poster with filename
         movieDto.setPoster(fileName);
 
@@ -149,9 +294,27 @@ public class MovieServiceImpl implements MovieService {
                 movieDto.getReleaseYear(),
                 movieDto.getPoster()
         );
-
-        //4. Save Updated movie to repository(DB)
-        Movie updatedMovie = movieRepository.save(movie);
+        // the version read above, so a write that landed in between fails the save
+        movie.setVersion(existingMovie.getVersion());
+
+        //4. Save Updated movie to repository(DB), a failed save keeps the old poster and drops the new one
+        Movie updatedMovie;
+        try {
+            updatedMovie = movieRepository.save(movie);
+        } catch (RuntimeException e) {
+            unpinUpload(upload, fileName);
+            finishReplacement(staged, oldPoster, false);
+            if(!fileName.equals(oldPoster)) {
+                releasePoster(fileName);
+            }
+            throw e;
+        }
+        unpinUpload(upload, fileName);
+        movieCache.invalidate(movieId);
+        finishReplacement(staged, oldPoster, true);
+        if(!fileName.equals(oldPoster)) {
+            releasePoster(oldPoster);
+        }
 
         //5. set poster url
         String posterUrl = baseUrl + "/file/" + updatedMovie.getPoster();
@@ -167,26 +330,95 @@ public class MovieServiceImpl implements MovieService {
 //                updatedMovie.getPoster(),
 //                posterUrl
 //        );
-        return convertToMovieDto(updatedMovie, posterUrl);
+        MovieDto response = convertToMovieDto(updatedMovie, posterUrl);
+        eventPublisher.publishEvent(MovieChangedEvent.saved(response));
+        return response;
     }
 
     @Override
-    public String deleteMovieById(Integer movieId) throws IOException {
+    @Transactional
+    public MovieDto patchMovieById(Integer movieId, MovieDto patch, MultipartFile file,
+                                   Integer expectedVersion) throws IOException {
+        //1. fields that were sent must pass the same checks as a full movie
+        if(patch != null) {
+            validatePatch(patch);
+        }
+
+        //2. load the managed movie and check the version the client edited
+        Movie movie = movieRepository.findById(movieId).
+                orElseThrow(() -> new MovieNotFoundException("Movie Not Found with id: " + movieId));
+        checkVersion(movie, expectedVersion);
+
+        //3. apply only what was sent, dirty checking turns it into a minimal UPDATE
+        if(patch != null) {
+            if(patch.getTitle() != null) movie.setTitle(patch.getTitle());
+            if(patch.getDirector() != null) movie.setDirector(patch.getDirector());
+            if(patch.getStudio() != null) movie.setStudio(patch.getStudio());
+            if(patch.getReleaseYear() != null) movie.setReleaseYear(patch.getReleaseYear());
+            if(patch.getMovieCast() != null) {
+                // change the collection in place so only added and removed names hit movie_cast
+                movie.getMovieCast().retainAll(patch.getMovieCast());
+                movie.getMovieCast().addAll(patch.getMovieCast());
+            }
+        }
+
+        //4. a new poster replaces the old one, under the same name it is swapped in after the commit
+        String oldPoster = movie.getPoster();
+        Path staged = stageReplacement(file, oldPoster);
+        MultipartFile upload = staged == null ? file : null;
+        if(upload != null) {
+            movie.setPoster(fileService.uploadFile(path, upload));
+        }
+        String newPoster = movie.getPoster();
+
+        //5. cache, indexes and poster files follow the outcome of the commit, not the flush,
+        // registered before the flush so a failing flush still drops the new upload
+        AtomicReference<MovieDto> saved = new AtomicReference<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                boolean committed = status == STATUS_COMMITTED;
+                unpinUpload(upload, newPoster);
+                finishReplacementQuietly(staged, oldPoster, committed);
+                if(committed) {
+                    movieCache.invalidate(movieId);
+                    eventPublisher.publishEvent(MovieChangedEvent.saved(saved.get()));
+                }
+                // committed drops the old poster, rolled back drops the new upload
+                if(!oldPoster.equals(newPoster)) {
+                    releasePosterQuietly(committed ? oldPoster : newPoster);
+                }
+            }
+        });
+
+        //6. flush now so the returned version is the new one
+        movieRepository.flush();
+
+        String posterUrl = baseUrl + "/file/" + newPoster;
+        MovieDto response = convertToMovieDto(movie, posterUrl);
+        saved.set(response);
+        return response;
+    }
+
+    @Override
+    public String deleteMovieById(Integer movieId, Integer expectedVersion) throws IOException {
         //1. Check if movie object exixts in Db
         Movie existingMovie = movieRepository.findById(movieId).
                 orElseThrow(() -> new MovieNotFoundException("Movie Not Found with id: " + movieId));
+        checkVersion(existingMovie, expectedVersion);
 
-        //2. delete the file associate with this object
-
-        String fileName = existingMovie.getPoster();
-        Files.delete(Paths.get(path + File.separator + fileName));
+        //2. Delete the Movie object, deleting the loaded entity re-checks its version in the delete
+        movieRepository.delete(existingMovie);
+        movieCache.invalidate(movieId);
 
-        //3. Delete the Movie object
-        movieRepository.deleteById(existingMovie.getMovieId());
+        //3. delete the file associate with this object, now that the row no longer points at it
+        releasePoster(existingMovie.getPoster());
+        eventPublisher.publishEvent(MovieChangedEvent.deleted(movieId, existingMovie.getVersion()));
         return "Movie Deleted Successfully";
     }
 
     @Override
+    @Transactional(readOnly = true)
     public MoviePageResponse getAllMoviesWithPagination(Integer pageNumber, Integer pageSize) {
         Pageable pageable = PageRequest.of(pageNumber, pageSize);
 
@@ -194,15 +426,94 @@ public class MovieServiceImpl implements MovieService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public MoviePageResponse getAllMoviesWithPaginationAndSorting(Integer pageNumber, Integer pageSize, String sortBy, String direction) {
         Sort sort = direction.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
-        System.out.println("Sorting by: " + sort);
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sort);
 
         return getMoviePageResponse(pageNumber, pageSize, pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public MoviePageResponse getAllMoviesWithFields(Integer pageNumber, Integer pageSize,
+                                                    String sortBy, String direction, String fields) {
+        //1. work out the columns, posterUrl is derived from poster
+        Set<String> requested = new LinkedHashSet<>();
+        for(String field : fields.split(",")) {
+            String name = field.strip();
+            if(name.isEmpty()) continue;
+            if(!PROJECTABLE_FIELDS.contains(name)) {
+                throw new InvalidFieldsException("Unknown field: " + name);
+            }
+            requested.add(name);
+        }
+        if(!MovieCursor.SORTABLE_FIELDS.contains(sortBy)) {
+            throw new InvalidFieldsException("Cannot sort by: " + sortBy);
+        }
+        Set<String> columns = new LinkedHashSet<>(List.of("movieId", "version"));
+        columns.addAll(requested);
+        if(columns.remove("posterUrl")) {
+            columns.add("poster");
+        }
+
+        //2. select only those columns, movieId keeps the order stable between pages
+        Sort.Direction dir = direction.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = sortBy.equals("movieId") ? Sort.by(dir, "movieId") : Sort.by(dir, sortBy, "movieId");
+        Page<MovieDto> moviePages = movieRepository.findAllProjected(columns, PageRequest.of(pageNumber, pageSize, sort));
+
+        //3. fill in the poster url, and drop the poster when only the url was asked for
+        for(MovieDto movieDto : moviePages.getContent()) {
+            if(requested.contains("posterUrl")) {
+                movieDto.setPosterUrl(baseUrl + "/file/" + movieDto.getPoster());
+                if(!requested.contains("poster")) {
+                    movieDto.setPoster(null);
+                }
+            }
+        }
+
+        return new MoviePageResponse(moviePages.getContent(), pageNumber, pageSize,
+                moviePages.getTotalElements(),
+                moviePages.getTotalPages(),
+                moviePages.isLast());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MovieCursorPageResponse getAllMoviesWithCursor(String cursor, Integer pageSize,
+                                                          String sortBy, String direction, boolean withCount) {
+        //1. an empty cursor starts from the first row, otherwise the cursor decides the sort
+        if(pageSize <= 0) {
+            throw new InvalidCursorException("pageSize must be at least 1");
+        }
+        MovieCursor movieCursor = (cursor == null || cursor.isBlank())
+                ? MovieCursor.first(sortBy, direction)
+                : MovieCursor.decode(cursor);
+
+        //2. seek past the last (sort key, movieId) pair instead of skipping OFFSET rows
+        Window<Movie> movieWindow = movieRepository.findAllBy(movieCursor.toScrollPosition(),
+                movieCursor.toSort(), Limit.of(pageSize));
+
+        List<MovieDto> movieDtoList = new ArrayList<>();
+        for(Movie movie : movieWindow.getContent()){
+            String posterUrl = baseUrl + "/file/" + movie.getPoster();
+            movieDtoList.add(convertToMovieDto(movie, posterUrl));
+        }
+
+        //3. build the cursor for the next page from the last row of this one
+        String nextCursor = null;
+        if(movieWindow.hasNext() && !movieWindow.isEmpty()) {
+            nextCursor = movieCursor.next(movieWindow.positionAt(movieWindow.size() - 1)).encode();
+        }
+
+        //4. COUNT(*) only when asked for
+        Long totalElements = withCount ? movieRepository.count() : null;
+
+        return new MovieCursorPageResponse(movieDtoList, pageSize, nextCursor,
+                nextCursor == null, totalElements);
+    }
+
     private MoviePageResponse getMoviePageResponse(Integer pageNumber, Integer pageSize, Pageable pageable) {
         Page<Movie> moviePages = movieRepository.findAll(pageable);
 
@@ -222,16 +533,96 @@ public class MovieServiceImpl implements MovieService {
                 moviePages.isLast());
     }
 
+    @Override
+    public BoundedCache.Stats getMovieCacheStats() {
+        return movieCache.stats();
+    }
+
+    private void checkVersion(Movie movie, Integer expectedVersion) {
+        if(expectedVersion != null && !expectedVersion.equals(movie.getVersion())) {
+            throw new PreconditionFailedException("Movie with id: " + movie.getMovieId()
+                    + " has changed since it was read");
+        }
+    }
+
+    // after completion only reads run on the finished transaction's connection, a failure just leaves the file
+    private void releasePosterQuietly(String fileName) {
+        try {
+            releasePoster(fileName);
+        } catch (IOException e) {
+            log.warn("Could not release poster {}", fileName, e);
+        }
+    }
+
+    // null unless the upload would overwrite the poster the movie already has
+    private Path stageReplacement(MultipartFile file, String currentPoster) throws IOException {
+        if(file == null || !fileService.replacesInPlace(currentPoster, file.getOriginalFilename())) {
+            return null;
+        }
+        return fileService.stageFile(path, file);
+    }
+
+    // saved swaps the staged bytes in under the name, otherwise they are dropped
+    private void finishReplacement(Path staged, String fileName, boolean saved) throws IOException {
+        if(staged == null) {
+            return;
+        }
+        if(saved) {
+            fileService.replaceFile(path, fileName, staged);
+        } else {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    private void finishReplacementQuietly(Path staged, String fileName, boolean saved) {
+        try {
+            finishReplacement(staged, fileName, saved);
+        } catch (IOException e) {
+            log.warn("Could not replace poster {}", fileName, e);
+        }
+    }
+
+    // blank text is answered with 400 here instead of failing validation at flush
+    private void validatePatch(MovieDto patch) {
+        List<String> messages = new ArrayList<>();
+        for(String field : List.of("title", "director", "studio")) {
+            for(ConstraintViolation<MovieDto> violation : validator.validateProperty(patch, field)) {
+                // unset fields are simply not patched
+                if(violation.getInvalidValue() != null) {
+                    messages.add(violation.getMessage().strip());
+                }
+            }
+        }
+        if(!messages.isEmpty()) {
+            throw new InvalidMovieException(String.join(", ", messages));
+        }
+    }
+
+    // the row is written or given up on, so the upload no longer needs its pin
+    private void unpinUpload(MultipartFile file, String fileName) {
+        if(file != null) {
+            fileService.unpin(fileName);
+        }
+    }
+
+    // called once this movie no longer points at the file, it goes away when no other movie does
+    private void releasePoster(String fileName) throws IOException {
+        fileService.deleteFileIfUnreferenced(path, fileName, () -> movieRepository.countByPoster(fileName) > 0);
+    }
+
+    // the cast is copied so the dto does not keep a lazy collection bound to the session
     private MovieDto convertToMovieDto(Movie movie, String posterUrl){
-        return new MovieDto(
+        MovieDto movieDto = new MovieDto(
                 movie.getMovieId(),
                 movie.getTitle(),
                 movie.getDirector(),
                 movie.getStudio(),
-                movie.getMovieCast(),
+                movie.getMovieCast() == null ? null : new HashSet<>(movie.getMovieCast()),
                 movie.getReleaseYear(),
                 movie.getPoster(),
                 posterUrl
         );
+        movieDto.setVersion(movie.getVersion());
+        return movieDto;
     }
 }
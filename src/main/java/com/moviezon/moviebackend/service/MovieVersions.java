@@ -0,0 +1,46 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Last row version an in-memory index holds per movie.
+ * Events are published after commit from whichever thread made the write,
+ * so two updates of one movie can arrive out of order, and a rebuild can read
+ * a row that is newer than an event still queued for it.
+ * Deletes keep their version, so a late save cannot bring a deleted movie back.
+ * Not thread safe, the index's lock guards it.
+ */
+final class MovieVersions {
+
+    private final Map<Integer, Integer> versions = new HashMap<>();
+
+    // a movie read from the database
+    void loaded(MovieDto movie) {
+        if (movie.getVersion() != null) {
+            versions.merge(movie.getMovieId(), movie.getVersion(), Math::max);
+        }
+    }
+
+    // true when the event is newer than what the index holds, which it then becomes
+    boolean accept(MovieChangedEvent event) {
+        Integer version = event.version();
+        if (version == null) {
+            return true;
+        }
+        Integer current = versions.get(event.movieId());
+        // a delete carries the version of the last save, so equal still applies
+        boolean stale = current != null && (event.isDeleted() ? version < current : version <= current);
+        if (stale) {
+            return false;
+        }
+        versions.put(event.movieId(), version);
+        return true;
+    }
+
+    void clear() {
+        versions.clear();
+    }
+}
@@ -0,0 +1,240 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.utils.BoundedCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Builds smaller JPEG copies of an uploaded poster off the request thread.
+ * Derivatives live in a .derivatives directory next to the original
+ * as <full original name>_w<width>.jpg, so a.png and a.jpg never share one.
+ * Until one exists the original is served and the build is queued again,
+ * which also recovers work dropped from a full queue.
+ */
+@Slf4j
+@Service
+public class PosterDerivativeService {
+
+    private static final String DERIVATIVE_EXTENSION = ".jpg";
+
+    private static final String DERIVATIVE_DIR = ".derivatives";
+
+    private final int[] widths;
+
+    private final float quality;
+
+    private final long maxPixels;
+
+    private final ThreadPoolExecutor executor;
+
+    // originals queued or being built, so repeated requests do not queue them twice
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    // originals already built, a poster too small for any width has no derivative to look for
+    private final BoundedCache<Path, Boolean> built;
+
+    public PosterDerivativeService(@Value("${project.poster.widths:160,320,640}") int[] widths,
+                                   @Value("${project.poster.jpeg-quality:0.8}") float quality,
+                                   @Value("${project.poster.derivative-threads:2}") int threads,
+                                   @Value("${project.poster.derivative-queue:200}") int queueSize,
+                                   @Value("${project.poster.derivative-built-cache:10000}") int builtCacheSize,
+                                   @Value("${project.poster.max-pixels:40000000}") long maxPixels) {
+        this.widths = Arrays.stream(widths).sorted().toArray();
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+        this.built = new BoundedCache<>(builtCacheSize, Duration.ofDays(1));
+        // image scaling is CPU bound, so a small fixed pool, and a full queue rejects the work
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "poster-derivatives");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // queue derivative generation for a freshly stored original
+    public void generateAsync(Path original) {
+        queue(key(original));
+    }
+
+    private void queue(Path original) {
+        if (!pending.add(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(original);
+                    built.put(original, Boolean.TRUE);
+                } catch (Exception e) {
+                    log.warn("Could not build derivatives for {}", original.getFileName(), e);
+                } finally {
+                    pending.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the first request for a derivative queues it again
+            pending.remove(original);
+            log.debug("Poster derivative queue full, {} left for later", original.getFileName());
+        }
+    }
+
+    // smallest generated derivative at least as wide as requested, otherwise the original,
+    // which is provisional when the derivative may still appear
+    public PosterFile resolve(Path original, int requestedWidth) {
+        Path key = key(original);
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                Path derivative = derivativePath(key, width);
+                if (Files.isRegularFile(derivative)) {
+                    return new PosterFile(derivative, false);
+                }
+                if (built.get(key) != null) {
+                    // built, the original is narrower than this width
+                    return new PosterFile(original, false);
+                }
+                queue(key);
+                return new PosterFile(original, true);
+            }
+        }
+        return new PosterFile(original, false);
+    }
+
+    public void deleteDerivatives(Path original) throws IOException {
+        original = key(original);
+        built.invalidate(original);
+        for (int width : widths) {
+            Files.deleteIfExists(derivativePath(original, width));
+        }
+    }
+
+    private void generate(Path original) throws IOException {
+        BufferedImage source = decode(original);
+        if (source == null) {
+            // not an image ImageIO can decode, or too large to, keep serving the original
+            return;
+        }
+
+        for (int width : widths) {
+            if (width >= source.getWidth()) {
+                break;
+            }
+            int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+            writeJpeg(scale(source, width, height), derivativePath(original, width));
+        }
+    }
+
+    /*
+     * Uploads are untrusted, a few KB of PNG can claim 50000x50000 pixels.
+     * The header is read first and the pixels are only decoded under max-pixels.
+     */
+    private BufferedImage decode(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Poster {} is {}x{}, over project.poster.max-pixels, no derivatives built",
+                            original.getFileName(), reader.getWidth(0), reader.getHeight(0));
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+
+        // halve step by step, a single bilinear pass from a large poster looks blocky
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, currentWidth, currentHeight);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = step;
+        } while (currentWidth != width || currentHeight != height);
+
+        return current;
+    }
+
+    // written to a temp file and moved, so readers never see a half written derivative
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".derivative", DERIVATIVE_EXTENSION);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // relative and absolute paths of one original must hit the same pending and built entries
+    private Path key(Path original) {
+        return original.toAbsolutePath().normalize();
+    }
+
+    // the full name, extension included, keeps a.png and a.jpg apart
+    private Path derivativePath(Path original, int width) {
+        String fileName = original.getFileName().toString();
+        return original.resolveSibling(DERIVATIVE_DIR).resolve(fileName + "_w" + width + DERIVATIVE_EXTENSION);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,7 @@
+package com.moviezon.moviebackend.service;
+
+import java.nio.file.Path;
+
+// the file to serve for a poster request, provisional while it stands in for a derivative still being built
+public record PosterFile(Path path, boolean provisional) {
+}
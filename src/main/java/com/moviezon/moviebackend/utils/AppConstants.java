@@ -8,4 +8,13 @@ public class AppConstants {
     public static final String SORT_BY = "movieId";
 
     public static final String SORT_DIRECTION = "asc";
+
+    public static final String SEARCH_LIMIT = "20";
+
+    public static final String AUTOCOMPLETE_LIMIT = "10";
+
+    public static final String FACET_LIMIT = "10";
+
+    // rows per JDBC round trip when streaming, needs useCursorFetch=true on the MySQL url
+    public static final String STREAM_FETCH_SIZE = "500";
 }
@@ -0,0 +1,198 @@
+package com.moviezon.moviebackend.utils;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Small in-process cache bounded by size, with a default TTL
+ * and optional per-entry expiry.
+ * Reads never lock: a hit only marks its entry as referenced.
+ * Writes take a lock to keep two queues, one by expiry time and one in insertion
+ * order that evicts the way CLOCK does: an entry read since it last came up for
+ * eviction gets a second chance. A put is O(log n), nothing scans the whole map.
+ * Hit, miss, eviction and expiration counts are kept for sizing.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // soonest expiry first, guarded by writeLock
+    private final PriorityQueue<Node<K, V>> byExpiry =
+            new PriorityQueue<>(Comparator.comparingLong(Node::expiresAt));
+
+    // eviction candidates in insertion order, guarded by writeLock
+    private final ArrayDeque<Node<K, V>> clock = new ArrayDeque<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    // returns the cached value, or null if it is missing or expired
+    public V get(K key) {
+        Node<K, V> node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (node.expiresAt() <= System.currentTimeMillis()) {
+            if (entries.remove(key, node)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        // read before write, a hot entry does not bounce its cache line between cores
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        hits.increment();
+        return node.value();
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    // entry expires at the given epoch millis or after the default TTL, whichever comes first
+    public void put(K key, V value, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        Node<K, V> node = new Node<>(key, value, Math.min(expiresAtMillis, now + ttlMillis));
+        writeLock.lock();
+        try {
+            entries.put(key, node);
+            byExpiry.add(node);
+            clock.add(node);
+            expire(now);
+            evictIfFull();
+            compactIfStale();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // the queued node goes stale and is dropped when it comes up
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        writeLock.lock();
+        try {
+            entries.clear();
+            byExpiry.clear();
+            clock.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        double hitRate = requests == 0 ? 0.0 : (double) hitCount / requests;
+        return new Stats(hitCount, missCount, evictions.sum(), expirations.sum(), entries.size(), maxSize, hitRate);
+    }
+
+    // drop everything whose time is up, soonest first
+    private void expire(long now) {
+        Node<K, V> head;
+        while ((head = byExpiry.peek()) != null && head.expiresAt() <= now) {
+            byExpiry.poll();
+            if (entries.remove(head.key(), head)) {
+                expirations.increment();
+            }
+        }
+    }
+
+    // a referenced entry is requeued once with its mark cleared, so this ends within two passes
+    private void evictIfFull() {
+        while (entries.size() > maxSize) {
+            Node<K, V> candidate = clock.poll();
+            if (candidate == null) {
+                return;
+            }
+            if (entries.get(candidate.key()) != candidate) {
+                continue;
+            }
+            if (candidate.referenced) {
+                candidate.referenced = false;
+                clock.add(candidate);
+                continue;
+            }
+            if (entries.remove(candidate.key(), candidate)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    // replaced and invalidated nodes are only skipped when reached, rebuild once they outnumber live ones
+    private void compactIfStale() {
+        int limit = 2 * Math.max(maxSize, entries.size()) + 16;
+        if (clock.size() > limit) {
+            clock.removeIf(node -> entries.get(node.key()) != node);
+        }
+        if (byExpiry.size() > limit) {
+            byExpiry.removeIf(node -> entries.get(node.key()) != node);
+        }
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+
+        private final V value;
+
+        private final long expiresAt;
+
+        // set by reads, cleared when the entry is passed over for eviction
+        private volatile boolean referenced;
+
+        private Node(K key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        K key() {
+            return key;
+        }
+
+        V value() {
+            return value;
+        }
+
+        long expiresAt() {
+            return expiresAt;
+        }
+    }
+
+    public record Stats(long hits,
+                        long misses,
+                        long evictions,
+                        long expirations,
+                        int size,
+                        int maxSize,
+                        double hitRate) {
+    }
+}
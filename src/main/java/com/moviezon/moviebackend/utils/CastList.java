@@ -0,0 +1,62 @@
+package com.moviezon.moviebackend.utils;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/*
+ * The cast as one CSV field: names separated by '|'.
+ * A '|' or '\' inside a name is escaped with '\', so export and import round trip any name.
+ */
+public final class CastList {
+
+    private static final char SEPARATOR = '|';
+
+    private static final char ESCAPE = '\\';
+
+    private CastList() {
+    }
+
+    public static String join(Collection<String> cast) {
+        StringBuilder joined = new StringBuilder();
+        for (String name : cast) {
+            if (joined.length() > 0) {
+                joined.append(SEPARATOR);
+            }
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == SEPARATOR || c == ESCAPE) {
+                    joined.append(ESCAPE);
+                }
+                joined.append(c);
+            }
+        }
+        return joined.toString();
+    }
+
+    // names are stripped and empty ones dropped, a trailing lone '\' is kept as is
+    public static Set<String> split(String field) {
+        Set<String> cast = new LinkedHashSet<>();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ESCAPE && i + 1 < field.length()) {
+                name.append(field.charAt(++i));
+            } else if (c == SEPARATOR) {
+                add(cast, name);
+            } else {
+                name.append(c);
+            }
+        }
+        add(cast, name);
+        return cast;
+    }
+
+    private static void add(Set<String> cast, StringBuilder name) {
+        String stripped = name.toString().strip();
+        if (!stripped.isEmpty()) {
+            cast.add(stripped);
+        }
+        name.setLength(0);
+    }
+}
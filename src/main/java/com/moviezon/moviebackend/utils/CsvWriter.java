@@ -0,0 +1,31 @@
+package com.moviezon.moviebackend.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// counterpart of CsvReader, quotes a field only when it needs it
+public final class CsvWriter {
+
+    private CsvWriter() {
+    }
+
+    public static void writeRecord(Writer writer, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(fields.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escape(String field) {
+        if (field == null) {
+            return "";
+        }
+        boolean needsQuotes = field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+        return needsQuotes ? '"' + field.replace("\"", "\"\"") + '"' : field;
+    }
+}
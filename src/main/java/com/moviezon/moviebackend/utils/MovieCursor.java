@@ -0,0 +1,85 @@
+package com.moviezon.moviebackend.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviezon.moviebackend.exceptions.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Opaque keyset cursor for movie listings.
+ * It carries the sort key, the direction and the (sort key, movieId) values
+ * of the last row returned, so the next page can seek past it
+ * instead of scanning an OFFSET.
+ */
+public record MovieCursor(String sortBy, String direction, Map<String, Object> keys) {
+
+    // the one list of columns listings can be sorted by, cursor or not
+    public static final Set<String> SORTABLE_FIELDS =
+            Set.of("movieId", "title", "director", "studio", "releaseYear");
+
+    private static final String ID_FIELD = "movieId";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // cursor for the first page, nothing to seek past yet
+    public static MovieCursor first(String sortBy, String direction) {
+        if (!SORTABLE_FIELDS.contains(sortBy)) {
+            throw new InvalidCursorException("Cannot sort by: " + sortBy);
+        }
+        String dir = direction.equalsIgnoreCase("asc") ? "asc" : "desc";
+        return new MovieCursor(sortBy, dir, Map.of());
+    }
+
+    public static MovieCursor decode(String cursor) {
+        MovieCursor decoded;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            decoded = MAPPER.readValue(json, MovieCursor.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+
+        MovieCursor validated = first(decoded.sortBy(), decoded.direction());
+        if (decoded.keys() == null || !decoded.keys().keySet().equals(validated.keyFields())) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        return new MovieCursor(validated.sortBy(), validated.direction(), decoded.keys());
+    }
+
+    public String encode() {
+        try {
+            byte[] json = MAPPER.writeValueAsString(this).getBytes(StandardCharsets.UTF_8);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    // movieId is always the tie breaker, so the seek is over (sortBy, movieId)
+    public Sort toSort() {
+        Sort.Direction dir = Sort.Direction.fromString(direction);
+        return sortBy.equals(ID_FIELD) ? Sort.by(dir, ID_FIELD) : Sort.by(dir, sortBy, ID_FIELD);
+    }
+
+    public ScrollPosition toScrollPosition() {
+        return keys.isEmpty() ? ScrollPosition.keyset() : ScrollPosition.forward(keys);
+    }
+
+    // cursor pointing right after the given position of the current window
+    public MovieCursor next(ScrollPosition position) {
+        KeysetScrollPosition keyset = (KeysetScrollPosition) position;
+        return new MovieCursor(sortBy, direction, keyset.getKeys());
+    }
+
+    private Set<String> keyFields() {
+        return sortBy.equals(ID_FIELD) ? Set.of(ID_FIELD) : Set.of(sortBy, ID_FIELD);
+    }
+}
@@ -0,0 +1,62 @@
+package com.moviezon.moviebackend.utils;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.exceptions.PreconditionFailedException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/*
+ * ETags built from the optimistic lock version.
+ * A single movie gets a strong "<movieId>-<version>" tag,
+ * a page gets a weak tag over the ids and versions it holds plus its paging state.
+ */
+public final class MovieETags {
+
+    private MovieETags() {
+    }
+
+    public static String of(MovieDto movie) {
+        return "\"" + movie.getMovieId() + "-" + movie.getVersion() + "\"";
+    }
+
+    public static String ofPage(List<MovieDto> movies, Object... pageState) {
+        StringBuilder state = new StringBuilder();
+        for (MovieDto movie : movies) {
+            state.append(movie.getMovieId()).append(':').append(movie.getVersion()).append(',');
+        }
+        for (Object value : pageState) {
+            state.append('|').append(value);
+        }
+        return "W/\"" + hash(state.toString()) + "\"";
+    }
+
+    // version the client expects from an If-Match header, null when absent or "*"
+    public static Integer expectedVersion(String ifMatch, Integer movieId) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        String prefix = "\"" + movieId + "-";
+        if (!tag.startsWith(prefix) || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match does not match movie with id: " + movieId);
+        }
+        try {
+            return Integer.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not match movie with id: " + movieId);
+        }
+    }
+
+    private static String hash(String state) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(state.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.moviezon.moviebackend.auth.service;
+
+import com.moviezon.moviebackend.MovieBackendApplication;
+import com.moviezon.moviebackend.auth.utils.RegisterRequest;
+import com.moviezon.moviebackend.metrics.MetricsRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * What JwtAuthFilter spends per authenticated request, before and after the JWT changes.
+ * Before: the key decoded and a parser built for each of the three parses of one token,
+ * plus the user loaded from the database. After: one verification, answered from the cache
+ * or not, and the principal either loaded from the database or rebuilt from the claims
+ * (jwt.claims-principal.enabled). The user lookup runs against H2 through the real repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtRequestCostBenchmark {
+
+    private static final String EMAIL = "bench@moviezon.com";
+
+    private static final int ROTATING_TOKENS = 1024;
+
+    private ConfigurableApplicationContext context;
+
+    private UserDetailsService userDetailsService;
+
+    private JwtService jwtService;
+
+    private JwtService uncachedJwtService;
+
+    private String secretKey;
+
+    private UserDetails user;
+
+    private String token;
+
+    private String[] rotatingTokens;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void boot() throws ReflectiveOperationException {
+        context = new SpringApplicationBuilder(MovieBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:jwt-bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--project.poster=target/bench-posters",
+                        "--logging.level.root=WARN");
+        userDetailsService = context.getBean(UserDetailsService.class);
+        jwtService = context.getBean(JwtService.class);
+        uncachedJwtService = new JwtService(1, new MetricsRegistry());
+        Field key = JwtService.class.getDeclaredField("SECRET_KEY");
+        key.setAccessible(true);
+        secretKey = (String) key.get(null);
+        context.getBean(AuthService.class).register(RegisterRequest.builder()
+                .name("Bench User")
+                .email(EMAIL)
+                .username("bench")
+                .password("bench-password")
+                .build());
+        user = userDetailsService.loadUserByUsername(EMAIL);
+    }
+
+    // tokens live 25 seconds
+    @Setup(Level.Iteration)
+    public void issueTokens() {
+        token = jwtService.generateToken(user);
+        rotatingTokens = new String[ROTATING_TOKENS];
+        for (int i = 0; i < ROTATING_TOKENS; i++) {
+            rotatingTokens[i] = jwtService.generateToken(Map.of("n", i), user);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        context.close();
+    }
+
+    // the original filter: extractUsername, loadUserByUsername, then isTokenValid parsing twice more
+    @Benchmark
+    public boolean before() {
+        String jwt = nextToken();
+        String email = parseWithFreshKey(jwt).getSubject();
+        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        String username = parseWithFreshKey(jwt).getSubject();
+        return username.equals(userDetails.getUsername())
+                && !parseWithFreshKey(jwt).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean verifiedWithUserLookup() {
+        Claims claims = uncachedJwtService.verifyToken(nextToken());
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        return uncachedJwtService.isTokenValid(claims, userDetails);
+    }
+
+    @Benchmark
+    public boolean verifiedClaimsPrincipal() {
+        Claims claims = uncachedJwtService.verifyToken(nextToken());
+        return uncachedJwtService.isTokenValid(claims, uncachedJwtService.extractUserDetails(claims));
+    }
+
+    @Benchmark
+    public boolean cachedWithUserLookup() {
+        Claims claims = jwtService.verifyToken(token);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        return jwtService.isTokenValid(claims, userDetails);
+    }
+
+    @Benchmark
+    public boolean cachedClaimsPrincipal() {
+        Claims claims = jwtService.verifyToken(token);
+        return jwtService.isTokenValid(claims, jwtService.extractUserDetails(claims));
+    }
+
+    private Claims parseWithFreshKey(String jwt) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(jwt)
+                .getPayload();
+    }
+
+    private String nextToken() {
+        next = (next + 1) % ROTATING_TOKENS;
+        return rotatingTokens[next];
+    }
+}
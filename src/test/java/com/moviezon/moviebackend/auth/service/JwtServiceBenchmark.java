@@ -0,0 +1,97 @@
+package com.moviezon.moviebackend.auth.service;
+
+import com.moviezon.moviebackend.metrics.MetricsRegistry;
+import io.jsonwebtoken.io.DecodingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Token generation and the per-request checks, once answered from the verified token cache
+ * and once with a cache too small to hold the rotating tokens, so every call verifies the signature.
+ * Tokens live 25 seconds, they are reissued every iteration.
+ * Needs a base64 JwtService.SECRET_KEY, the same as the app.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private static final int ROTATING_TOKENS = 1024;
+
+    private final UserDetails user = User.withUsername("bench@moviezon.com")
+            .password("")
+            .authorities("USER")
+            .build();
+
+    private JwtService jwtService;
+
+    private JwtService uncachedJwtService;
+
+    private String token;
+
+    private String[] rotatingTokens;
+
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        jwtService = new JwtService(10_000, new MetricsRegistry());
+        uncachedJwtService = new JwtService(1, new MetricsRegistry());
+        try {
+            token = jwtService.generateToken(user);
+        } catch (DecodingException | IllegalArgumentException e) {
+            throw new IllegalStateException("JwtService.SECRET_KEY must be a base64 encoded HMAC key", e);
+        }
+        rotatingTokens = new String[ROTATING_TOKENS];
+        for (int i = 0; i < ROTATING_TOKENS; i++) {
+            rotatingTokens[i] = jwtService.generateToken(Map.of("n", i), user);
+        }
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsernameCached() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public String extractUsernameVerified() {
+        return uncachedJwtService.extractUsername(nextToken());
+    }
+
+    @Benchmark
+    public boolean isTokenValidCached() {
+        return jwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public boolean isTokenValidVerified() {
+        return uncachedJwtService.isTokenValid(nextToken(), user);
+    }
+
+    private String nextToken() {
+        next = (next + 1) % ROTATING_TOKENS;
+        return rotatingTokens[next];
+    }
+}
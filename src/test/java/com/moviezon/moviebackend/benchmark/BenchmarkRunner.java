@@ -0,0 +1,29 @@
+package com.moviezon.moviebackend.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the JMH benchmarks under src/test/java and writes the results as JSON,
+ * to target/jmh-result.json unless -Djmh.result points elsewhere.
+ * The first argument narrows the run to benchmarks matching a regex, e.g. JwtServiceBenchmark.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALL_BENCHMARKS = "com\\.moviezon\\.moviebackend\\..*Benchmark";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : ALL_BENCHMARKS)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jmh.result", "target/jmh-result.json"))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,42 @@
+package com.moviezon.moviebackend.controller;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// parsing of the movieDto part sent with add, update and multipart patch
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieControllerBenchmark {
+
+    private static final String MOVIE_JSON = "{\"title\":\"Heat\",\"director\":\"Michael Mann\",\"studio\":\"Warner Bros.\","
+            + "\"movieCast\":[\"Al Pacino\",\"Robert De Niro\",\"Val Kilmer\"],\"releaseYear\":1995,\"poster\":\"heat.png\"}";
+
+    private MovieController movieController;
+
+    @Setup
+    public void setUp() {
+        movieController = new MovieController(null, null, null, null, null, null,
+                Jackson2ObjectMapperBuilder.json().build(), 100);
+    }
+
+    @Benchmark
+    public MovieDto convertToMovieDto() {
+        return movieController.convertToMovieDto(MOVIE_JSON);
+    }
+}
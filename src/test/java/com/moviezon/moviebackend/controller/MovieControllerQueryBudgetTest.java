@@ -0,0 +1,206 @@
+package com.moviezon.moviebackend.controller;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.repository.MovieRepository;
+import com.moviezon.moviebackend.service.MovieService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Calls every budgeted MovieController handler in strict mode,
+ * where a handler over its @QueryBudget (or repeating one select, N+1) answers 500.
+ */
+@SpringBootTest(properties = {
+        "query.budget.strict=true",
+        "project.poster=target/test-posters/query-budget"
+})
+@AutoConfigureMockMvc
+@WithMockUser
+class MovieControllerQueryBudgetTest {
+
+    private static final String BASE = "/api/v1/movie";
+
+    private static final String BUDGET_HEADER = "X-Query-Budget-Exceeded";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private final List<MovieDto> movies = new ArrayList<>();
+
+    @BeforeEach
+    void seed() throws IOException {
+        movieRepository.findAll().forEach(movie -> {
+            try {
+                movieService.deleteMovieById(movie.getMovieId(), null);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        FileSystemUtils.deleteRecursively(Path.of("target/test-posters/query-budget"));
+        movies.clear();
+        for (int i = 0; i < 12; i++) {
+            MovieDto movie = new MovieDto(null, "Budget " + i, "Director " + i % 3, "Studio " + i % 2,
+                    Set.of("Actor " + i, "Actor " + (i + 1), "Actor " + (i + 2)), 1990 + i, null, null);
+            movies.add(movieService.addMovie(movie, poster("budget-" + i + ".png")));
+        }
+    }
+
+    @Test
+    void addMovie() throws Exception {
+        expectWithinBudget(multipart(BASE + "/add-movie")
+                .file(poster("added.png"))
+                .file(json("movieDto", movieJson("Added"))), 201);
+    }
+
+    @Test
+    void importAndImportStatus() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "movies.ndjson", "application/x-ndjson",
+                (movieJson("Imported") + "\n").getBytes());
+        MvcResult started = expectWithinBudget(multipart(BASE + "/import").file(file), 202);
+
+        String location = started.getResponse().getHeader("Location");
+        expectWithinBudget(get(location), 200);
+    }
+
+    @Test
+    void cacheStats() throws Exception {
+        expectWithinBudget(get(BASE + "/cache-stats"), 200);
+    }
+
+    @Test
+    void searchAndAutocomplete() throws Exception {
+        expectWithinBudget(get(BASE + "/search").param("q", "budget"), 200);
+        expectWithinBudget(get(BASE + "/autocomplete").param("q", "bud"), 200);
+    }
+
+    @Test
+    void batch() throws Exception {
+        String ids = movies.stream().map(movie -> String.valueOf(movie.getMovieId()))
+                .reduce((a, b) -> a + "," + b).orElseThrow();
+        expectWithinBudget(get(BASE + "/batch").param("ids", ids), 200);
+    }
+
+    @Test
+    void getMovie() throws Exception {
+        expectWithinBudget(get(BASE + "/" + movies.get(0).getMovieId()), 200);
+    }
+
+    @Test
+    void allMovies() throws Exception {
+        expectWithinBudget(get(BASE + "/all"), 200);
+    }
+
+    @Test
+    void streamedAllMoviesAndExport() throws Exception {
+        expectAsyncOk(get(BASE + "/all").accept(MediaType.APPLICATION_NDJSON));
+        expectAsyncOk(get(BASE + "/export").param("format", "csv"));
+    }
+
+    @Test
+    void updateMovie() throws Exception {
+        MovieDto movie = movies.get(1);
+        expectWithinBudget(multipart(HttpMethod.PUT, BASE + "/update/" + movie.getMovieId())
+                .file(poster("updated.png"))
+                .file(json("movieDto", movieJson("Updated"))), 201);
+    }
+
+    @Test
+    void patchMovie() throws Exception {
+        MovieDto movie = movies.get(2);
+        expectWithinBudget(patch(BASE + "/" + movie.getMovieId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Patched\",\"movieCast\":[\"Actor 2\",\"Someone New\"]}"), 200);
+    }
+
+    @Test
+    void patchMovieWithPoster() throws Exception {
+        MovieDto movie = movies.get(3);
+        expectWithinBudget(multipart(HttpMethod.PATCH, BASE + "/" + movie.getMovieId())
+                .file(poster("patched.png"))
+                .file(json("movieDto", "{\"studio\":\"Patched Studio\"}")), 200);
+    }
+
+    @Test
+    void deleteMovie() throws Exception {
+        expectWithinBudget(delete(BASE + "/delete/" + movies.get(4).getMovieId()), 200);
+    }
+
+    @Test
+    void pages() throws Exception {
+        expectWithinBudget(get(BASE + "/paginated").param("pageSize", "5"), 200);
+        expectWithinBudget(get(BASE + "/paginated").param("pageSize", "5").param("fields", "movieId,title,movieCast"), 200);
+        expectWithinBudget(get(BASE + "/paginated-sorted").param("pageSize", "5").param("sortBy", "releaseYear"), 200);
+        expectWithinBudget(get(BASE + "/paginated-sorted").param("pageSize", "5").param("fields", "title,poster"), 200);
+    }
+
+    @Test
+    void cursorPages() throws Exception {
+        expectWithinBudget(get(BASE + "/paginated-sorted").param("cursor", "").param("pageSize", "5"), 200);
+        expectWithinBudget(get(BASE + "/paginated-sorted").param("cursor", "").param("pageSize", "5")
+                .param("withCount", "true"), 200);
+    }
+
+    @Test
+    void filter() throws Exception {
+        expectWithinBudget(get(BASE + "/filter").param("yearFrom", "1995").param("studio", "Studio 1"), 200);
+    }
+
+    private MvcResult expectWithinBudget(RequestBuilder request, int expectedStatus) throws Exception {
+        return mvc.perform(request)
+                .andExpect(status().is(expectedStatus))
+                .andExpect(header().doesNotExist(BUDGET_HEADER))
+                .andReturn();
+    }
+
+    // streamed bodies are written after the handler returned, on the async dispatch
+    private void expectAsyncOk(RequestBuilder request) throws Exception {
+        MvcResult started = mvc.perform(request).andReturn();
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(BUDGET_HEADER));
+    }
+
+    private static String movieJson(String title) {
+        return "{\"title\":\"" + title + "\",\"director\":\"Director\",\"studio\":\"Studio\","
+                + "\"movieCast\":[\"Actor 1\",\"Actor 2\"],\"releaseYear\":2001}";
+    }
+
+    private static MockMultipartFile poster(String name) {
+        return new MockMultipartFile("file", name, "image/png", name.getBytes());
+    }
+
+    private static MockMultipartFile json(String part, String content) {
+        return new MockMultipartFile(part, "", MediaType.APPLICATION_JSON_VALUE, content.getBytes());
+    }
+}
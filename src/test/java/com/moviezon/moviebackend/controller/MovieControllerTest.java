@@ -0,0 +1,94 @@
+package com.moviezon.moviebackend.controller;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.repository.MovieRepository;
+import com.moviezon.moviebackend.service.MovieService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "project.poster=target/test-posters/controller")
+@AutoConfigureMockMvc
+@WithMockUser
+class MovieControllerTest {
+
+    private static final String BASE = "/api/v1/movie";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private MovieDto movie;
+
+    @BeforeEach
+    void seed() throws IOException {
+        movieRepository.findAll().forEach(existing -> {
+            try {
+                movieService.deleteMovieById(existing.getMovieId(), null);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        FileSystemUtils.deleteRecursively(Path.of("target/test-posters/controller"));
+        movie = movieService.addMovie(new MovieDto(null, "Original", "Director", "Studio",
+                Set.of("Actor"), 2001, null, null), poster("original.png"));
+    }
+
+    @Test
+    void malformedMovieDtoPartIsRejected() throws Exception {
+        mvc.perform(multipart(BASE + "/add-movie")
+                        .file(poster("added.png"))
+                        .file(json("{\"title\":\"Added\",")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(startsWith("Malformed movieDto")));
+
+        assertThat(movieRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownFieldInMovieDtoPartIsRejected() throws Exception {
+        mvc.perform(multipart(HttpMethod.PUT, BASE + "/update/" + movie.getMovieId())
+                        .file(poster("updated.png"))
+                        .file(json("{\"title\":\"Updated\",\"tittle\":\"Typo\"}")))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(multipart(HttpMethod.PATCH, BASE + "/" + movie.getMovieId())
+                        .file(json("{\"studio\":\"Patched\",\"studo\":\"Typo\"}")))
+                .andExpect(status().isBadRequest());
+
+        MovieDto unchanged = movieService.getMovieById(movie.getMovieId());
+        assertThat(unchanged.getTitle()).isEqualTo("Original");
+        assertThat(unchanged.getStudio()).isEqualTo("Studio");
+    }
+
+    private static MockMultipartFile poster(String name) {
+        return new MockMultipartFile("file", name, "image/png", name.getBytes());
+    }
+
+    private static MockMultipartFile json(String content) {
+        return new MockMultipartFile("movieDto", "", MediaType.APPLICATION_JSON_VALUE, content.getBytes());
+    }
+}
@@ -0,0 +1,67 @@
+package com.moviezon.moviebackend.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// response serialization with a mapper configured the way Spring Boot builds the shared one
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieJsonBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private ObjectMapper objectMapper;
+
+    private MovieDto movie;
+
+    private MoviePageResponse page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<MovieDto> movies = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            movies.add(movie(i));
+        }
+        movie = movies.get(0);
+        page = new MoviePageResponse(movies, 0, PAGE_SIZE, 10_000, 10_000 / PAGE_SIZE, false);
+    }
+
+    @Benchmark
+    public byte[] movieDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] moviePageResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    private static MovieDto movie(int i) {
+        MovieDto movie = new MovieDto(i + 1, "Movie " + i, "Director " + i % 50, "Studio " + i % 10,
+                Set.of("Actor " + i, "Actor " + (i + 1), "Actor " + (i + 2), "Actor " + (i + 3)),
+                1970 + i % 50, "poster-" + i + ".png", "http://localhost:8080/file/poster-" + i + ".png");
+        movie.setVersion(0);
+        return movie;
+    }
+}
@@ -0,0 +1,60 @@
+package com.moviezon.moviebackend.load;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.service.MovieService;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// fills the catalogue through MovieService, so posters, versions and the in-memory indexes are all in place
+final class CatalogueSeeder {
+
+    private static final int POSTER_WIDTH = 400;
+    private static final int POSTER_HEIGHT = 600;
+
+    record Catalogue(List<Integer> movieIds, List<String> posters) {
+    }
+
+    private CatalogueSeeder() {
+    }
+
+    static Catalogue seed(MovieService movieService, int movies) throws IOException {
+        List<Integer> movieIds = new ArrayList<>(movies);
+        List<String> posters = new ArrayList<>(movies);
+        for (int i = 0; i < movies; i++) {
+            MovieDto movie = new MovieDto(null, "Load Movie " + i, "Director " + i % 100, "Studio " + i % 20,
+                    Set.of("Actor " + i, "Actor " + (i + 1), "Actor " + (i + 2), "Actor " + (i + 3)),
+                    1950 + i % 70, null, null);
+            MovieDto saved = movieService.addMovie(movie,
+                    new MockMultipartFile("file", "load-" + i + ".png", "image/png", poster(i)));
+            movieIds.add(saved.getMovieId());
+            posters.add(saved.getPoster());
+        }
+        return new Catalogue(List.copyOf(movieIds), List.copyOf(posters));
+    }
+
+    // a distinct image per movie, so content addressed storage does not fold them into one file
+    private static byte[] poster(int i) throws IOException {
+        BufferedImage image = new BufferedImage(POSTER_WIDTH, POSTER_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(Color.HSBtoRGB((i % 360) / 360f, 0.6f, 0.8f)));
+            graphics.fillRect(0, 0, POSTER_WIDTH, POSTER_HEIGHT);
+            graphics.setColor(Color.WHITE);
+            graphics.drawString("Load Movie " + i, 20, POSTER_HEIGHT / 2);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
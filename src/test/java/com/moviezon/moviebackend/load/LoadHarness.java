@@ -0,0 +1,193 @@
+package com.moviezon.moviebackend.load;
+
+import com.moviezon.moviebackend.MovieBackendApplication;
+import com.moviezon.moviebackend.service.MovieService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * End-to-end load harness: boots the app on an in-memory H2 database in MySQL mode,
+ * seeds the scenario's catalogue with posters and sends its steps at a fixed arrival rate.
+ *
+ *   LoadHarness <scenario> [--spring.property=value ...]
+ *
+ * <scenario> is a properties file or the name of one under src/test/resources/load (see Scenario).
+ * Results are printed and written to target/load/<scenario>/.
+ */
+public final class LoadHarness {
+
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    private final Scenario scenario;
+
+    private final HttpClient client;
+
+    private final URI baseUri;
+
+    private final CatalogueSeeder.Catalogue catalogue;
+
+    private final Sessions sessions;
+
+    private final LoadReport report;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final SplittableRandom random = new SplittableRandom();
+
+    private LoadHarness(Scenario scenario, HttpClient client, URI baseUri, CatalogueSeeder.Catalogue catalogue,
+                        Sessions sessions, LoadReport report) {
+        this.scenario = scenario;
+        this.client = client;
+        this.baseUri = baseUri;
+        this.catalogue = catalogue;
+        this.sessions = sessions;
+        this.report = report;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: LoadHarness <scenario> [--spring.property=value ...]");
+            System.exit(2);
+        }
+        Scenario scenario = Scenario.load(args[0]);
+        Map<String, String> appProperties = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected --property=value, got " + args[i]);
+            }
+            appProperties.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        LoadReport report = run(scenario, appProperties);
+        report.print(System.out);
+        report.write(Path.of("target", "load", scenario.name()));
+    }
+
+    // one fresh app, database and catalogue per run, so runs with different properties compare cleanly
+    static LoadReport run(Scenario scenario, Map<String, String> appProperties) throws IOException, InterruptedException {
+        int port = freePort();
+        Path posters = Path.of("target", "load", "posters");
+        FileSystemUtils.deleteRecursively(posters);
+        // passed as command line arguments, which win over application.properties
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", port);
+        properties.put("base.url", "http://localhost:" + port);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:load" + RUNS.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("project.poster", posters.toString());
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(appProperties);
+
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MovieBackendApplication.class)
+                .run(args)) {
+            CatalogueSeeder.Catalogue catalogue = CatalogueSeeder.seed(context.getBean(MovieService.class), scenario.movies());
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            URI baseUri = URI.create("http://localhost:" + port);
+            try (Sessions sessions = Sessions.open(client, baseUri)) {
+                LoadReport report = new LoadReport(scenario, appProperties);
+                new LoadHarness(scenario, client, baseUri, catalogue, sessions, report).drive();
+                return report;
+            }
+        }
+    }
+
+    // open model: request i is due at start + i / rate, however long the earlier ones take
+    private void drive() throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / scenario.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + scenario.warmup().toNanos();
+        long end = measureFrom + scenario.duration().toNanos();
+        for (long i = 0; ; i++) {
+            long due = start + i * interval;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(scenario.pick(random), due, due >= measureFrom);
+        }
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void send(Scenario.Step step, long due, boolean measured) {
+        if (inFlight.incrementAndGet() > scenario.maxInFlight()) {
+            inFlight.decrementAndGet();
+            if (measured) {
+                report.drop(step.name());
+            }
+            return;
+        }
+        long n = sequence.incrementAndGet();
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(expand(step.path(), n)))
+                .timeout(Duration.ofSeconds(30));
+        if (step.path().startsWith("/api/v1/movie")) {
+            request.header("Authorization", "Bearer " + sessions.accessToken());
+        }
+        if (step.body() == null) {
+            request.method(step.method(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json")
+                    .method(step.method(), HttpRequest.BodyPublishers.ofString(expand(step.body(), n)));
+        }
+        client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    inFlight.decrementAndGet();
+                    if (measured) {
+                        report.record(step.name(), System.nanoTime() - due, failure == null ? response.statusCode() : -1);
+                    }
+                });
+    }
+
+    private String expand(String template, long n) {
+        if (template.indexOf('{') < 0) {
+            return template;
+        }
+        int movie = random.nextInt(catalogue.movieIds().size());
+        return template
+                .replace("{movieId}", String.valueOf(catalogue.movieIds().get(movie)))
+                .replace("{poster}", catalogue.posters().get(movie))
+                .replace("{page}", String.valueOf(random.nextInt(Math.max(1, catalogue.movieIds().size() / 20))))
+                .replace("{n}", String.valueOf(n))
+                .replace("{email}", Sessions.email(0))
+                .replace("{password}", Sessions.PASSWORD)
+                .replace("{refreshToken}", sessions.refreshToken());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
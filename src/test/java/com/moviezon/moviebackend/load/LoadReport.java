@@ -0,0 +1,142 @@
+package com.moviezon.moviebackend.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Response times per step and over all steps, in microseconds, measured from when a request
+ * was due rather than when it went out, so a stalled server is not hidden by requests queueing behind it.
+ * Written as a JSON summary plus one HdrHistogram percentile file (.hgrm) per step.
+ */
+final class LoadReport {
+
+    static final String TOTAL = "total";
+
+    private final Scenario scenario;
+
+    private final Map<String, String> appProperties;
+
+    private final Map<String, StepStats> steps = new LinkedHashMap<>();
+
+    LoadReport(Scenario scenario, Map<String, String> appProperties) {
+        this.scenario = scenario;
+        this.appProperties = Map.copyOf(appProperties);
+        for (Scenario.Step step : scenario.steps()) {
+            steps.put(step.name(), new StepStats());
+        }
+        steps.put(TOTAL, new StepStats());
+    }
+
+    // status -1 is a request that failed without a response
+    void record(String step, long latencyNanos, int status) {
+        long micros = Math.max(1, latencyNanos / 1_000);
+        steps.get(step).record(micros, status);
+        steps.get(TOTAL).record(micros, status);
+    }
+
+    void drop(String step) {
+        steps.get(step).dropped.increment();
+        steps.get(TOTAL).dropped.increment();
+    }
+
+    StepStats stats(String step) {
+        return steps.get(step);
+    }
+
+    Scenario scenario() {
+        return scenario;
+    }
+
+    void print(PrintStream out) {
+        out.printf("scenario %s: %d req/s for %ds after %ds warm-up, %d movies%n", scenario.name(), scenario.rate(),
+                scenario.duration().toSeconds(), scenario.warmup().toSeconds(), scenario.movies());
+        if (!appProperties.isEmpty()) {
+            out.println("app properties: " + new TreeMap<>(appProperties));
+        }
+        out.printf("%-16s %9s %8s %8s %10s %10s %10s %10s %9s%n",
+                "step", "count", "errors", "dropped", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "req/s");
+        steps.forEach((name, stats) -> out.printf("%-16s %9d %8d %8d %10.2f %10.2f %10.2f %10.2f %9.1f%n",
+                name, stats.count(), stats.errors.sum(), stats.dropped.sum(),
+                stats.percentileMillis(50), stats.percentileMillis(99), stats.percentileMillis(99.9),
+                stats.latency.getMaxValue() / 1000.0, stats.count() / (double) scenario.duration().toSeconds()));
+    }
+
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("scenario", scenario.name());
+        summary.put("rate", scenario.rate());
+        summary.put("warmupSeconds", scenario.warmup().toSeconds());
+        summary.put("durationSeconds", scenario.duration().toSeconds());
+        summary.put("movies", scenario.movies());
+        summary.put("appProperties", new TreeMap<>(appProperties));
+        Map<String, Object> stepSummaries = new LinkedHashMap<>();
+        for (Map.Entry<String, StepStats> entry : steps.entrySet()) {
+            StepStats stats = entry.getValue();
+            Map<String, Object> step = new LinkedHashMap<>();
+            step.put("count", stats.count());
+            step.put("errors", stats.errors.sum());
+            step.put("dropped", stats.dropped.sum());
+            step.put("statuses", stats.statusCounts());
+            step.put("p50Millis", stats.percentileMillis(50));
+            step.put("p99Millis", stats.percentileMillis(99));
+            step.put("p999Millis", stats.percentileMillis(99.9));
+            step.put("maxMillis", stats.latency.getMaxValue() / 1000.0);
+            stepSummaries.put(entry.getKey(), step);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hgrm")))) {
+                stats.latency.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        summary.put("steps", stepSummaries);
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(directory.resolve("summary.json").toFile(), summary);
+    }
+
+    static final class StepStats {
+
+        private final Histogram latency = new ConcurrentHistogram(3);
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder dropped = new LongAdder();
+
+        private final ConcurrentHashMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private void record(long micros, int status) {
+            latency.recordValue(micros);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            if (status < 0 || status >= 400) {
+                errors.increment();
+            }
+        }
+
+        long errors() {
+            return errors.sum();
+        }
+
+        long count() {
+            return latency.getTotalCount();
+        }
+
+        double percentileMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        private Map<String, Long> statusCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status < 0 ? "failed" : String.valueOf(status), count.sum()));
+            return counts;
+        }
+    }
+}
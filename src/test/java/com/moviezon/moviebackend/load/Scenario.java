@@ -0,0 +1,116 @@
+package com.moviezon.moviebackend.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.random.RandomGenerator;
+
+/*
+ * A load scenario, read from a properties file or from load/<name>.properties on the test classpath:
+ *
+ *   rate=200                 requests per second, sent on schedule whether or not earlier ones finished
+ *   warmup-seconds=10        sent but not recorded
+ *   duration-seconds=60
+ *   catalogue.movies=1000    movies seeded before the run, each with its own poster
+ *   max-in-flight=5000       beyond this a request is dropped and counted, instead of piling up
+ *   step.<name>=<weight> <METHOD> <path> [json body]
+ *
+ * Paths and bodies may use {movieId}, {poster}, {page} (a page of 20), {n} (a running number),
+ * {email}, {password} and {refreshToken}.
+ */
+record Scenario(String name, int rate, Duration warmup, Duration duration, int movies, int maxInFlight,
+                List<Step> steps) {
+
+    private static final String STEP_PREFIX = "step.";
+
+    record Step(String name, int weight, String method, String path, String body) {
+    }
+
+    static Scenario load(String location) throws IOException {
+        Path file = Path.of(location);
+        Properties properties = new Properties();
+        String name;
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            name = file.getFileName().toString().replaceFirst("\\.properties$", "");
+        } else {
+            try (InputStream in = Scenario.class.getClassLoader().getResourceAsStream("load/" + location + ".properties")) {
+                if (in == null) {
+                    throw new IllegalArgumentException("No scenario file or load/" + location + ".properties on the classpath");
+                }
+                properties.load(in);
+            }
+            name = location;
+        }
+        return parse(name, properties);
+    }
+
+    static Scenario parse(String name, Properties properties) {
+        List<Step> steps = new ArrayList<>();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (key.startsWith(STEP_PREFIX)) {
+                steps.add(step(key.substring(STEP_PREFIX.length()), properties.getProperty(key).trim()));
+            }
+        }
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Scenario " + name + " has no step.* entries");
+        }
+        return new Scenario(name,
+                positive(properties, "rate", 100),
+                Duration.ofSeconds(Integer.parseInt(properties.getProperty("warmup-seconds", "10"))),
+                Duration.ofSeconds(positive(properties, "duration-seconds", 60)),
+                positive(properties, "catalogue.movies", 1000),
+                positive(properties, "max-in-flight", 5000),
+                List.copyOf(steps));
+    }
+
+    // weighted pick, a step of weight 30 comes up three times as often as one of weight 10
+    Step pick(RandomGenerator random) {
+        int roll = random.nextInt(totalWeight());
+        for (Step step : steps) {
+            roll -= step.weight();
+            if (roll < 0) {
+                return step;
+            }
+        }
+        return steps.get(steps.size() - 1);
+    }
+
+    private int totalWeight() {
+        int total = 0;
+        for (Step step : steps) {
+            total += step.weight();
+        }
+        return total;
+    }
+
+    private static Step step(String name, String value) {
+        String[] parts = value.split("\\s+", 4);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("step." + name + " must be '<weight> <METHOD> <path> [body]'");
+        }
+        int weight = Integer.parseInt(parts[0]);
+        if (weight <= 0) {
+            throw new IllegalArgumentException("step." + name + " needs a positive weight");
+        }
+        return new Step(name, weight, parts[1].toUpperCase(), parts[2], parts.length == 4 ? parts[3] : null);
+    }
+
+    private static int positive(Properties properties, String key, int defaultValue) {
+        int value = Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+        if (value <= 0) {
+            throw new IllegalArgumentException(key + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,139 @@
+package com.moviezon.moviebackend.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps the harness logged in, outside of the measured requests.
+ * Access tokens live 25 seconds and are renewed by logging in again after 20.
+ * A refresh token lives 30 seconds and login only replaces it once it expired,
+ * so a second user starts 15 seconds later and {refreshToken} always comes from the younger one.
+ */
+final class Sessions implements AutoCloseable {
+
+    static final String PASSWORD = "load-password";
+
+    private static final long ACCESS_RENEW_NANOS = TimeUnit.SECONDS.toNanos(20);
+    private static final long REFRESH_LIFETIME_NANOS = TimeUnit.MILLISECONDS.toNanos(30_500);
+    private static final long SECOND_USER_DELAY_SECONDS = 15;
+
+    private record Session(String email, String accessToken, long accessIssued,
+                           String refreshToken, long refreshIssued) {
+    }
+
+    private final HttpClient client;
+
+    private final URI baseUri;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-sessions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Sessions(HttpClient client, URI baseUri) {
+        this.client = client;
+        this.baseUri = baseUri;
+    }
+
+    static Sessions open(HttpClient client, URI baseUri) throws IOException, InterruptedException {
+        Sessions sessions = new Sessions(client, baseUri);
+        sessions.sessions.add(sessions.register(0));
+        sessions.scheduler.schedule(sessions::addSecondUser, SECOND_USER_DELAY_SECONDS, TimeUnit.SECONDS);
+        sessions.scheduler.scheduleWithFixedDelay(sessions::renew, 250, 250, TimeUnit.MILLISECONDS);
+        return sessions;
+    }
+
+    static String email(int user) {
+        return "load" + user + "@moviezon.com";
+    }
+
+    String accessToken() {
+        return sessions.stream().max(Comparator.comparingLong(Session::accessIssued)).orElseThrow().accessToken();
+    }
+
+    String refreshToken() {
+        return sessions.stream().max(Comparator.comparingLong(Session::refreshIssued)).orElseThrow().refreshToken();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void addSecondUser() {
+        try {
+            sessions.add(register(1));
+        } catch (IOException e) {
+            System.err.println("Second load user not registered: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // a failed login, e.g. while the hashing pool is saturated, is simply retried on the next tick
+    private void renew() {
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            long now = System.nanoTime();
+            if (now - session.accessIssued() < ACCESS_RENEW_NANOS && now - session.refreshIssued() < REFRESH_LIFETIME_NANOS) {
+                continue;
+            }
+            try {
+                JsonNode response = post("/api/v1/auth/login",
+                        Map.of("email", session.email(), "password", PASSWORD));
+                String refreshToken = response.get("refreshToken").asText();
+                long refreshIssued = refreshToken.equals(session.refreshToken()) ? session.refreshIssued() : now;
+                sessions.set(i, new Session(session.email(), response.get("token").asText(), now,
+                        refreshToken, refreshIssued));
+            } catch (IOException e) {
+                // keep the current tokens
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Session register(int user) throws IOException, InterruptedException {
+        long now = System.nanoTime();
+        JsonNode response = post("/api/v1/auth/register", Map.of(
+                "name", "Load User " + user,
+                "email", email(user),
+                "username", "load" + user,
+                "password", PASSWORD));
+        return new Session(email(user), response.get("token").asText(), now,
+                response.get("refreshToken").asText(), now);
+    }
+
+    private JsonNode post(String path, Map<String, String> body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException(path + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,69 @@
+package com.moviezon.moviebackend.load;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Runs one scenario twice, on Tomcat's platform worker pool and on virtual threads,
+ * each against a freshly booted app, and prints the percentiles side by side.
+ * Both runs get the same connection pool size, so threading is the only difference.
+ *
+ *   ThreadModelComparison [scenario] [--spring.property=value ...]
+ *
+ * The scenario defaults to movies-and-posters. Virtual threads need Java 21.
+ */
+public final class ThreadModelComparison {
+
+    private static final String DEFAULT_SCENARIO = "movies-and-posters";
+
+    private static final String POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+
+    private ThreadModelComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Runtime.version().feature() < 21) {
+            System.err.println("Virtual threads need Java 21, running on " + Runtime.version());
+            System.exit(2);
+        }
+        int first = args.length > 0 && !args[0].startsWith("--") ? 1 : 0;
+        Scenario scenario = Scenario.load(first == 1 ? args[0] : DEFAULT_SCENARIO);
+        Map<String, String> shared = new LinkedHashMap<>();
+        shared.put(POOL_SIZE, "20");
+        for (int i = first; i < args.length; i++) {
+            String arg = args[i].substring(2);
+            shared.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadReport platform = run(scenario, shared, false);
+        LoadReport virtual = run(scenario, shared, true);
+        compare(platform, virtual, System.out);
+    }
+
+    private static LoadReport run(Scenario scenario, Map<String, String> shared, boolean virtualThreads) throws Exception {
+        Map<String, String> properties = new LinkedHashMap<>(shared);
+        properties.put("spring.threads.virtual.enabled", String.valueOf(virtualThreads));
+        LoadReport report = LoadHarness.run(scenario, properties);
+        report.print(System.out);
+        report.write(Path.of("target", "load", scenario.name() + (virtualThreads ? "-virtual" : "-platform")));
+        System.out.println();
+        return report;
+    }
+
+    private static void compare(LoadReport platform, LoadReport virtual, PrintStream out) {
+        out.printf("%-16s %-9s %9s %8s %10s %10s %10s%n", "step", "threads", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms");
+        for (Scenario.Step step : platform.scenario().steps()) {
+            row(out, step.name(), "platform", platform.stats(step.name()));
+            row(out, step.name(), "virtual", virtual.stats(step.name()));
+        }
+        row(out, LoadReport.TOTAL, "platform", platform.stats(LoadReport.TOTAL));
+        row(out, LoadReport.TOTAL, "virtual", virtual.stats(LoadReport.TOTAL));
+    }
+
+    private static void row(PrintStream out, String step, String threads, LoadReport.StepStats stats) {
+        out.printf("%-16s %-9s %9d %8d %10.2f %10.2f %10.2f%n", step, threads, stats.count(), stats.errors(),
+                stats.percentileMillis(50), stats.percentileMillis(99), stats.percentileMillis(99.9));
+    }
+}
@@ -0,0 +1,65 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.AutocompleteSuggestion;
+import com.moviezon.moviebackend.dto.MovieDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class MovieAutocompleteServiceTest {
+
+    private final MovieService movieService = mock(MovieService.class);
+
+    private final MovieAutocompleteService autocompleteService = new MovieAutocompleteService(movieService);
+
+    @Test
+    void olderUpdateArrivingLateIsDropped() {
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Blade Runner", 2)));
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Blade", 1)));
+
+        assertThat(texts("blade")).containsExactly("Blade Runner");
+    }
+
+    @Test
+    void saveOlderThanADeleteDoesNotBringTheMovieBack() {
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Blade Runner", 1)));
+        autocompleteService.onMovieChanged(MovieChangedEvent.deleted(1, 1));
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Blade Runner", 0)));
+
+        assertThat(texts("blade")).isEmpty();
+    }
+
+    @Test
+    void rebuildDoesNotReplayAnEventItsScanAlreadySaw() {
+        // the scan reads version 2 while the event for version 1 is still queued
+        doAnswer(invocation -> {
+            autocompleteService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Blade", 1)));
+            Consumer<MovieDto> consumer = invocation.getArgument(0);
+            consumer.accept(movie(1, "Blade Runner", 2));
+            return null;
+        }).when(movieService).streamAllMovies(any());
+
+        autocompleteService.rebuild();
+
+        assertThat(texts("blade")).containsExactly("Blade Runner");
+    }
+
+    private List<String> texts(String prefix) {
+        return autocompleteService.suggest(prefix, 10).stream().map(AutocompleteSuggestion::text).toList();
+    }
+
+    private MovieDto movie(int id, String title, int version) {
+        MovieDto movie = new MovieDto(id, title, "Ridley Scott", "Warner",
+                new HashSet<>(Set.of("Harrison Ford")), 1982, "blade-runner.png", null);
+        movie.setVersion(version);
+        return movie;
+    }
+}
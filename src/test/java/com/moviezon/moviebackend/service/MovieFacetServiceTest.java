@@ -0,0 +1,108 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.dto.MovieFilterResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MovieFacetServiceTest {
+
+    private final MovieFacetService facetService = new MovieFacetService(mock(MovieService.class));
+
+    @Test
+    void filtersAcrossFacetsAndCountsOverTheMatch() {
+        save(movie(1, "The Dark Knight", "Warner", 2008, 0, "Christian Bale", "Heath Ledger"));
+        save(movie(2, "The Prestige", "Touchstone", 2006, 0, "Christian Bale", "Hugh Jackman"));
+        save(movie(3, "Knight and Day", "Fox", 2010, 0, "Tom Cruise"));
+
+        MovieFilterResponse response = facetService.filter(2005, 2009, null, null, List.of("christian bale"),
+                0, 10, "asc", 10);
+
+        assertThat(titles(response)).containsExactly("The Dark Knight", "The Prestige");
+        assertThat(response.facets().get(MovieFacetService.CAST_FACET)).containsExactly(
+                new MovieFilterResponse.FacetCount("Christian Bale", 2),
+                new MovieFilterResponse.FacetCount("Heath Ledger", 1),
+                new MovieFilterResponse.FacetCount("Hugh Jackman", 1));
+        assertThat(response.facets().get(MovieFacetService.STUDIO_FACET)).hasSize(2);
+    }
+
+    @Test
+    void updateKeepsItsPlaceAndDropsOldValues() {
+        save(movie(1, "A", "Warner", 2000, 0, "Actor A"));
+        save(movie(2, "B", "Warner", 2001, 0, "Actor B"));
+        save(movie(1, "A", "Fox", 2000, 1, "Actor C"));
+
+        MovieFilterResponse response = all("asc");
+        assertThat(titles(response)).containsExactly("A", "B");
+        assertThat(facetService.filter(null, null, null, null, List.of("Actor A"), 0, 10, "asc", 10)
+                .totalElements()).isZero();
+        assertThat(facetService.filter(null, null, List.of("fox"), null, null, 0, 10, "asc", 10)
+                .totalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void lateInsertIsStillPagedInMovieIdOrder() {
+        save(movie(1, "First", "Warner", 2000, 0));
+        save(movie(3, "Third", "Warner", 2000, 0));
+        save(movie(2, "Second", "Warner", 2000, 0));
+
+        assertThat(titles(all("asc"))).containsExactly("First", "Second", "Third");
+        assertThat(titles(all("desc"))).containsExactly("Third", "Second", "First");
+        assertThat(titles(facetService.filter(null, null, null, null, null, 1, 1, "asc", 10)))
+                .containsExactly("Second");
+    }
+
+    @Test
+    void manyDeletesCompactTheIndex() {
+        for (int id = 1; id <= 3000; id++) {
+            save(movie(id, "Movie " + id, "Studio " + id % 3, 1950 + id % 50, 0, "Actor " + id));
+        }
+        for (int id = 1; id <= 2900; id++) {
+            facetService.onMovieChanged(MovieChangedEvent.deleted(id, 0));
+        }
+
+        MovieFilterResponse response = all("asc");
+        assertThat(response.totalElements()).isEqualTo(100);
+        assertThat(response.movieDtos().get(0).getTitle()).isEqualTo("Movie 2901");
+        assertThat(response.facets().get(MovieFacetService.CAST_FACET)).hasSize(10);
+    }
+
+    @Test
+    void staleEventIsDroppedAndResultsAreCopies() {
+        save(movie(1, "New", "Warner", 2000, 2, "Actor"));
+        save(movie(1, "Old", "Warner", 2000, 1, "Actor"));
+
+        MovieDto hit = all("asc").movieDtos().get(0);
+        assertThat(hit.getTitle()).isEqualTo("New");
+        hit.setTitle("Changed");
+        hit.getMovieCast().clear();
+
+        MovieDto again = all("asc").movieDtos().get(0);
+        assertThat(again.getTitle()).isEqualTo("New");
+        assertThat(again.getMovieCast()).containsExactly("Actor");
+    }
+
+    private MovieFilterResponse all(String direction) {
+        return facetService.filter(null, null, null, null, null, 0, 10, direction, 10);
+    }
+
+    private void save(MovieDto movie) {
+        facetService.onMovieChanged(MovieChangedEvent.saved(movie));
+    }
+
+    private List<String> titles(MovieFilterResponse response) {
+        return response.movieDtos().stream().map(MovieDto::getTitle).toList();
+    }
+
+    private MovieDto movie(int id, String title, String studio, int year, int version, String... cast) {
+        MovieDto movie = new MovieDto(id, title, "Director", studio, new HashSet<>(Set.of(cast)), year, null, null);
+        movie.setVersion(version);
+        return movie;
+    }
+}
@@ -0,0 +1,81 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MoviePageResponse;
+import com.moviezon.moviebackend.entities.Movie;
+import com.moviezon.moviebackend.repository.MovieRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Page assembly in MovieServiceImpl: entity to MovieDto conversion, poster urls and the page record.
+ * The repository is a stub handing back a ready page, so no database time is included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoviePageBenchmark {
+
+    private static final long TOTAL_MOVIES = 10_000;
+
+    @Param({"1", "20", "100"})
+    int pageSize;
+
+    private MovieServiceImpl movieService;
+
+    @Setup
+    public void setUp() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            Movie movie = new Movie(i + 1, "Movie " + i, "Director " + i % 50, "Studio " + i % 10,
+                    Set.of("Actor " + i, "Actor " + (i + 1), "Actor " + (i + 2), "Actor " + (i + 3)),
+                    1970 + i % 50, "poster-" + i + ".png");
+            movie.setVersion(0);
+            movies.add(movie);
+        }
+        movieService = new MovieServiceImpl(null, pageRepository(movies), null, null, null, null);
+        movieService.baseUrl = "http://localhost:8080";
+    }
+
+    @Benchmark
+    public MoviePageResponse page() {
+        return movieService.getAllMoviesWithPagination(0, pageSize);
+    }
+
+    // answers findAll(Pageable) with the prepared movies, anything else is not expected here
+    private static MovieRepository pageRepository(List<Movie> movies) {
+        return (MovieRepository) Proxy.newProxyInstance(MovieRepository.class.getClassLoader(),
+                new Class<?>[]{MovieRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && args != null
+                            && args.length == 1 && args[0] instanceof Pageable pageable) {
+                        return page(movies, pageable);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Page<Movie> page(List<Movie> movies, Pageable pageable) {
+        return new PageImpl<>(movies, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()), TOTAL_MOVIES);
+    }
+}
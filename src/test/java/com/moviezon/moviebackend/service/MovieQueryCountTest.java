@@ -0,0 +1,98 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import com.moviezon.moviebackend.entities.Movie;
+import com.moviezon.moviebackend.repository.MovieRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Statement counts of the list reads, so a cast collection loaded per movie (N+1) fails the build.
+ * The cast is read inside the transaction the way the controllers serialize it.
+ */
+@SpringBootTest
+class MovieQueryCountTest {
+
+    private static final int MOVIES = 250;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        movieRepository.deleteAll();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < MOVIES; i++) {
+            movies.add(new Movie(null, "Title " + i, "Director", "Studio",
+                    new HashSet<>(Set.of("Actor " + i, "Actor " + (i + 1))), 1950 + i % 70, "poster-" + i + ".png"));
+        }
+        movieRepository.saveAll(movies);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    void allMoviesLoadCastsInTheSameStatement() {
+        long casts = transactionTemplate.execute(status -> castsOf(movieService.getAllMovies()));
+
+        assertThat(casts).isEqualTo(2L * MOVIES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pageIsCountPlusRowsPlusOneCastBatch() {
+        long casts = transactionTemplate.execute(status ->
+                castsOf(movieService.getAllMoviesWithPagination(2, 50).movieDtos()));
+
+        assertThat(casts).isEqualTo(100);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void cursorPageIsRowsPlusOneCastBatch() {
+        long casts = transactionTemplate.execute(status ->
+                castsOf(movieService.getAllMoviesWithCursor("", 50, "title", "asc", false).movieDtos()));
+
+        assertThat(casts).isEqualTo(100);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void streamLoadsCastsOncePerChunk() {
+        List<MovieDto> streamed = new ArrayList<>();
+        movieService.streamAllMovies(streamed::add);
+
+        assertThat(castsOf(streamed)).isEqualTo(2L * MOVIES);
+        // one cursor over the table, one cast batch per 100 movies
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + (MOVIES + 99) / 100);
+    }
+
+    private long castsOf(List<MovieDto> movies) {
+        return movies.stream().mapToLong(movie -> movie.getMovieCast().size()).sum();
+    }
+}
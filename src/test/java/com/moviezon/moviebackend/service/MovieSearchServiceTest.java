@@ -0,0 +1,58 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MovieSearchServiceTest {
+
+    private final MovieSearchService searchService = new MovieSearchService(mock(MovieService.class));
+
+    @Test
+    void olderUpdateArrivingLateIsDropped() {
+        searchService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Alien", 2)));
+        searchService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Aliens", 1)));
+
+        assertThat(titles("alien")).containsExactly("Alien");
+        assertThat(titles("aliens")).isEmpty();
+    }
+
+    @Test
+    void saveOlderThanADeleteDoesNotBringTheMovieBack() {
+        searchService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Alien", 3)));
+        searchService.onMovieChanged(MovieChangedEvent.deleted(1, 3));
+        searchService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Alien", 2)));
+
+        assertThat(titles("alien")).isEmpty();
+    }
+
+    @Test
+    void resultsAreCopies() {
+        searchService.onMovieChanged(MovieChangedEvent.saved(movie(1, "Alien", 0)));
+
+        MovieDto hit = searchService.search("alien", 10).get(0);
+        hit.setTitle("Changed");
+        hit.getMovieCast().clear();
+
+        MovieDto again = searchService.search("alien", 10).get(0);
+        assertThat(again.getTitle()).isEqualTo("Alien");
+        assertThat(again.getMovieCast()).containsExactly("Sigourney Weaver");
+    }
+
+    private List<String> titles(String query) {
+        return searchService.search(query, 10).stream().map(MovieDto::getTitle).toList();
+    }
+
+    private MovieDto movie(int id, String title, int version) {
+        MovieDto movie = new MovieDto(id, title, "Ridley Scott", "Fox",
+                new HashSet<>(Set.of("Sigourney Weaver")), 1979, "alien.png", null);
+        movie.setVersion(version);
+        return movie;
+    }
+}
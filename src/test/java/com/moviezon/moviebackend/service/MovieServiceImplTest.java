@@ -0,0 +1,74 @@
+package com.moviezon.moviebackend.service;
+
+import com.moviezon.moviebackend.dto.MovieDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "project.poster=target/test-posters/movie-service")
+class MovieServiceImplTest {
+
+    private static final Path POSTERS = Path.of("target/test-posters/movie-service");
+
+    @Autowired
+    private MovieService movieService;
+
+    @BeforeEach
+    void clearPosters() throws IOException {
+        FileSystemUtils.deleteRecursively(POSTERS);
+    }
+
+    @Test
+    void updateWithUnchangedPosterNameReplacesThePoster() throws IOException {
+        MovieDto added = movieService.addMovie(movie("Heat"), poster("heat.png", 1));
+
+        MovieDto updated = movieService.updateMovieById(added.getMovieId(), movie("Heat (1995)"),
+                poster("heat.png", 2), added.getVersion());
+
+        assertThat(updated.getPoster()).isEqualTo("heat.png");
+        assertThat(updated.getTitle()).isEqualTo("Heat (1995)");
+        assertThat(Files.readAllBytes(POSTERS.resolve("heat.png"))).containsExactly(2);
+        assertThat(POSTERS.resolve(".incoming")).isEmptyDirectory();
+    }
+
+    @Test
+    void patchWithUnchangedPosterNameReplacesThePoster() throws IOException {
+        MovieDto added = movieService.addMovie(movie("Ronin"), poster("ronin.png", 1));
+
+        MovieDto patched = movieService.patchMovieById(added.getMovieId(), null,
+                poster("ronin.png", 3), added.getVersion());
+
+        assertThat(patched.getPoster()).isEqualTo("ronin.png");
+        assertThat(Files.readAllBytes(POSTERS.resolve("ronin.png"))).containsExactly(3);
+    }
+
+    @Test
+    void updateWithNewPosterNameReleasesTheOldOne() throws IOException {
+        MovieDto added = movieService.addMovie(movie("Thief"), poster("thief.png", 1));
+
+        MovieDto updated = movieService.updateMovieById(added.getMovieId(), movie("Thief"),
+                poster("thief-1981.png", 2), added.getVersion());
+
+        assertThat(updated.getPoster()).isEqualTo("thief-1981.png");
+        assertThat(POSTERS.resolve("thief.png")).doesNotExist();
+        assertThat(POSTERS.resolve("thief-1981.png")).exists();
+    }
+
+    private MovieDto movie(String title) {
+        return new MovieDto(null, title, "Michael Mann", "Warner", Set.of("Robert De Niro"), 1995, null, null);
+    }
+
+    private MockMultipartFile poster(String name, int content) {
+        return new MockMultipartFile("file", name, "image/png", new byte[]{(byte) content});
+    }
+}
@@ -0,0 +1,124 @@
+package com.moviezon.moviebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    @Test
+    void staysWithinSizeAndCountsEvictions() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, Duration.ofMinutes(1));
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i);
+        }
+
+        BoundedCache.Stats stats = cache.stats();
+        assertThat(stats.size()).isEqualTo(100);
+        assertThat(stats.evictions()).isEqualTo(900);
+        assertThat(cache.get(999)).isEqualTo("v999");
+        assertThat(cache.get(0)).isNull();
+    }
+
+    @Test
+    void entryReadSinceInsertOutlivesUnreadOnes() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(3, Duration.ofMinutes(1));
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+        cache.get(1);
+
+        cache.put(4, "four");
+
+        assertThat(cache.get(1)).isEqualTo("one");
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(4)).isEqualTo("four");
+    }
+
+    @Test
+    void entryExpiresAtItsOwnTimeOrTheDefaultTtl() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, Duration.ofMillis(500));
+        cache.put("short", "a", System.currentTimeMillis() + 20);
+        cache.put("capped", "b", Long.MAX_VALUE);
+
+        Thread.sleep(100);
+        assertThat(cache.get("short")).isNull();
+        assertThat(cache.get("capped")).isEqualTo("b");
+
+        Thread.sleep(500);
+        assertThat(cache.get("capped")).isNull();
+        assertThat(cache.stats().expirations()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredEntriesAreDroppedOnPutBeforeLiveOnesAreEvicted() throws InterruptedException {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(2, Duration.ofMinutes(1));
+        cache.put(1, "live");
+        cache.put(2, "dying", System.currentTimeMillis() + 5);
+        Thread.sleep(10);
+
+        cache.put(3, "new");
+
+        assertThat(cache.get(1)).isEqualTo("live");
+        assertThat(cache.get(3)).isEqualTo("new");
+        assertThat(cache.stats().evictions()).isZero();
+        assertThat(cache.stats().expirations()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidatedAndReplacedEntriesDoNotCountAgainstTheSize() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(2, Duration.ofMinutes(1));
+        for (int i = 0; i < 1000; i++) {
+            cache.put(1, "v" + i);
+            cache.invalidate(2);
+            cache.put(2, "w" + i);
+        }
+
+        assertThat(cache.get(1)).isEqualTo("v999");
+        assertThat(cache.get(2)).isEqualTo("w999");
+        assertThat(cache.stats().evictions()).isZero();
+
+        cache.invalidateAll();
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    void concurrentReadersAndWritersKeepTheBound() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(500, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50_000; i++) {
+                        int key = random.nextInt(2000);
+                        Integer value = cache.get(key);
+                        if (value == null) {
+                            cache.put(key, key);
+                        } else {
+                            assertThat(value).isEqualTo(key);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        BoundedCache.Stats stats = cache.stats();
+        assertThat(stats.size()).isLessThanOrEqualTo(500);
+        assertThat(stats.hits() + stats.misses()).isEqualTo(8 * 50_000);
+    }
+}